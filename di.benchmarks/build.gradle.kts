@@ -0,0 +1,66 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+    id("com.diffplug.spotless") version "6.25.0"
+}
+repositories {
+    mavenCentral()
+}
+dependencies {
+    jmh(project(":di.contanier"))
+    jmh("jakarta.inject:jakarta.inject-api:2.0.1")
+    jmh("jakarta.inject:jakarta.inject-tck:2.0.1")
+}
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+// synthetic component graphs: node i injects nodes 2i+1 and 2i+2, so the graph is a balanced tree
+val graphSizes = listOf(10, 1000, 10000)
+val generatedGraphs = layout.buildDirectory.dir("generated/sources/graphs")
+val generateGraphs by tasks.registering {
+    outputs.dir(generatedGraphs)
+    inputs.property("sizes", graphSizes)
+    doLast {
+        val directory = generatedGraphs.get().dir("geektime/tdd/di/benchmarks/graphs").asFile
+        directory.mkdirs()
+        for (size in graphSizes) {
+            val source = StringBuilder()
+            source.append("package geektime.tdd.di.benchmarks.graphs;\n\n")
+            source.append("public final class Graph$size {\n")
+            for (node in 0 until size) {
+                val dependencies = listOf(2 * node + 1, 2 * node + 2).filter { it < size }
+                source.append("    public static final class Node$node {\n")
+                source.append("        @jakarta.inject.Inject\n")
+                source.append("        public Node$node(")
+                source.append(dependencies.joinToString(", ") { "Node$it node$it" })
+                source.append(") {}\n    }\n")
+            }
+            source.append("}\n")
+            directory.resolve("Graph$size.java").writeText(source.toString())
+        }
+    }
+}
+sourceSets["jmh"].java.srcDir(generateGraphs)
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+}
+
+spotless {
+    java {
+        target("src/**/*.java")
+        palantirJavaFormat()
+        removeUnusedImports()
+        formatAnnotations()
+    }
+
+}
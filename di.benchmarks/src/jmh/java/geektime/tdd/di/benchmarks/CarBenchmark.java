@@ -0,0 +1,80 @@
+package geektime.tdd.di.benchmarks;
+
+import geektime.tdd.di.ComponentRef;
+import geektime.tdd.di.Config;
+import geektime.tdd.di.Context;
+import geektime.tdd.di.ContextConfig;
+import jakarta.inject.Named;
+import java.util.concurrent.TimeUnit;
+import org.atinject.tck.auto.Car;
+import org.atinject.tck.auto.Convertible;
+import org.atinject.tck.auto.Drivers;
+import org.atinject.tck.auto.DriversSeat;
+import org.atinject.tck.auto.Engine;
+import org.atinject.tck.auto.FuelTank;
+import org.atinject.tck.auto.Seat;
+import org.atinject.tck.auto.Tire;
+import org.atinject.tck.auto.V8Engine;
+import org.atinject.tck.auto.accessories.Cupholder;
+import org.atinject.tck.auto.accessories.SpareTire;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CarBenchmark {
+    private static final ComponentRef<Car> CAR = ComponentRef.of(Car.class);
+
+    private Context context;
+
+    @Setup
+    public void setUp() {
+        context = config().getContext();
+    }
+
+    @Benchmark
+    public Car car() {
+        return context.get(CAR).get();
+    }
+
+    @Benchmark
+    public Car startup() {
+        return config().getContext().get(CAR).get();
+    }
+
+    private static ContextConfig config() {
+        ContextConfig config = new ContextConfig();
+        config.from(new Config() {
+            @Export(Car.class)
+            Convertible car;
+
+            @Drivers
+            @Export(Seat.class)
+            DriversSeat drivers;
+
+            Seat seat;
+
+            Tire tire;
+
+            @Export(Engine.class)
+            V8Engine engine;
+
+            @Named("spare")
+            @Export(Tire.class)
+            SpareTire spare;
+
+            FuelTank fuelTank;
+
+            Cupholder cupholder;
+
+            SpareTire spareTire;
+        });
+        return config;
+    }
+}
@@ -0,0 +1,38 @@
+package geektime.tdd.di.benchmarks;
+
+import geektime.tdd.di.Config;
+import geektime.tdd.di.ContextConfig;
+import geektime.tdd.di.benchmarks.ResolutionBenchmark.InMemoryRepository;
+import geektime.tdd.di.benchmarks.ResolutionBenchmark.PrototypeService;
+import geektime.tdd.di.benchmarks.ResolutionBenchmark.Repository;
+import geektime.tdd.di.benchmarks.ResolutionBenchmark.SingletonService;
+import jakarta.inject.Named;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DslBenchmark {
+    static class Module implements Config {
+        @Export(Repository.class)
+        InMemoryRepository repository;
+
+        @Named("primary")
+        @Export(Repository.class)
+        InMemoryRepository primary;
+
+        PrototypeService prototype;
+
+        SingletonService singleton;
+    }
+
+    @Benchmark
+    public ContextConfig from() {
+        ContextConfig config = new ContextConfig();
+        config.from(new Module());
+        return config;
+    }
+}
@@ -0,0 +1,43 @@
+package geektime.tdd.di.benchmarks;
+
+import geektime.tdd.di.ContextConfig;
+
+final class Graphs {
+    private Graphs() {}
+
+    static ContextConfig config(int size) {
+        ContextConfig config = new ContextConfig();
+        for (Class<?> node : nodes(size)) {
+            bind(config, node);
+        }
+        return config;
+    }
+
+    static Class<?> root(int size) {
+        try {
+            return Class.forName(Graphs.class.getPackageName() + ".graphs.Graph" + size + "$Node0");
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("No generated graph of size " + size, e);
+        }
+    }
+
+    // the second half of a graph are its leaves, which bind without pulling in any other node
+    static void leaves(ContextConfig config, int size, int count) {
+        Class<?> graph = root(size).getDeclaringClass();
+        for (int node = size - count; node < size; node++) {
+            try {
+                bind(config, Class.forName(graph.getName() + "$Node" + node));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("No node " + node + " in graph of size " + size, e);
+            }
+        }
+    }
+
+    private static Class<?>[] nodes(int size) {
+        return root(size).getDeclaringClass().getDeclaredClasses();
+    }
+
+    private static <T> void bind(ContextConfig config, Class<T> node) {
+        config.component(node, node);
+    }
+}
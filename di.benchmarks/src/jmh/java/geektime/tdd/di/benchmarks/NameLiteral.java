@@ -0,0 +1,21 @@
+package geektime.tdd.di.benchmarks;
+
+import jakarta.inject.Named;
+import java.lang.annotation.Annotation;
+
+record NameLiteral(String value) implements Named {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return Named.class;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Named named && value.equals(named.value());
+    }
+
+    @Override
+    public int hashCode() {
+        return "value".hashCode() * 127 ^ value.hashCode();
+    }
+}
@@ -0,0 +1,51 @@
+package geektime.tdd.di.benchmarks;
+
+import geektime.tdd.di.Context;
+import geektime.tdd.di.ContextConfig;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// a large graph that already built its context gets a few more bindings, and only those should be validated again;
+// each call consumes one of a batch of configs built before the iteration, so their setup stays out of the timing
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 5, batchSize = RebuildBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = RebuildBenchmark.BATCH)
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RebuildBenchmark {
+    static final int BATCH = 50;
+    private static final int SIZE = 10000;
+    private static final int ADDED = 5;
+
+    private final Deque<ContextConfig> configs = new ArrayDeque<>();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        configs.clear();
+        for (int i = 0; i < BATCH; i++) {
+            ContextConfig config = Graphs.config(SIZE);
+            config.getContext();
+            configs.add(config);
+        }
+    }
+
+    @Benchmark
+    public Context getContext() {
+        ContextConfig config = configs.pop();
+        Graphs.leaves(config, 10, ADDED);
+        return config.getContext();
+    }
+}
@@ -0,0 +1,90 @@
+package geektime.tdd.di.benchmarks;
+
+import geektime.tdd.di.ComponentRef;
+import geektime.tdd.di.Context;
+import geektime.tdd.di.ContextConfig;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResolutionBenchmark {
+    interface Repository {}
+
+    static class InMemoryRepository implements Repository {
+        @Inject
+        InMemoryRepository() {}
+    }
+
+    static class PrototypeService {
+        @Inject
+        PrototypeService(Repository repository, @Named("primary") Repository primary) {}
+    }
+
+    @Singleton
+    static class SingletonService {
+        @Inject
+        SingletonService(Repository repository) {}
+    }
+
+    private static final ComponentRef<PrototypeService> PROTOTYPE = ComponentRef.of(PrototypeService.class);
+    private static final ComponentRef<SingletonService> SINGLETON = ComponentRef.of(SingletonService.class);
+    private static final ComponentRef<Repository> QUALIFIED =
+            ComponentRef.of(Repository.class, new NameLiteral("primary"));
+    private static final ComponentRef<Provider<PrototypeService>> PROVIDER =
+            new ComponentRef<Provider<PrototypeService>>() {};
+
+    @Param({"getContext", "compile"})
+    String context;
+
+    private Context resolver;
+    private Provider<PrototypeService> provider;
+
+    @Setup
+    public void setUp() {
+        ContextConfig config = new ContextConfig();
+        config.component(Repository.class, InMemoryRepository.class);
+        config.component(Repository.class, InMemoryRepository.class, new NameLiteral("primary"));
+        config.component(PrototypeService.class, PrototypeService.class);
+        config.component(SingletonService.class, SingletonService.class);
+        resolver = context.equals("compile") ? config.compile() : config.getContext();
+        provider = resolver.get(PROVIDER).get();
+    }
+
+    @Benchmark
+    public PrototypeService prototype() {
+        return resolver.get(PROTOTYPE).get();
+    }
+
+    @Benchmark
+    public SingletonService singleton() {
+        return resolver.get(SINGLETON).get();
+    }
+
+    @Benchmark
+    public Repository qualified() {
+        return resolver.get(QUALIFIED).get();
+    }
+
+    @Benchmark
+    public Provider<PrototypeService> providerLookup() {
+        return resolver.get(PROVIDER).get();
+    }
+
+    @Benchmark
+    public PrototypeService providerGet() {
+        return provider.get();
+    }
+}
@@ -0,0 +1,69 @@
+package geektime.tdd.di.benchmarks;
+
+import geektime.tdd.di.Context;
+import geektime.tdd.di.ContextConfig;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StartupBenchmark {
+    static final int BATCH = 20;
+
+    @Param({"10", "1000", "10000"})
+    int size;
+
+    // validation is incremental, so a config that already built a context would skip it; each call takes its own
+    // from a batch bound before the iteration, which keeps binding out of the timing
+    @State(Scope.Thread)
+    public static class Fresh {
+        final Deque<ContextConfig> configs = new ArrayDeque<>();
+
+        @Setup(Level.Iteration)
+        public void setUp(StartupBenchmark benchmark) {
+            configs.clear();
+            for (int i = 0; i < BATCH; i++) {
+                configs.add(Graphs.config(benchmark.size));
+            }
+        }
+    }
+
+    @Benchmark
+    public ContextConfig bind() {
+        return Graphs.config(size);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = BATCH)
+    @Measurement(iterations = 10, batchSize = BATCH)
+    @Fork(3)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Context getContext(Fresh fresh) {
+        return fresh.configs.pop().getContext();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = BATCH)
+    @Measurement(iterations = 10, batchSize = BATCH)
+    @Fork(3)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Context compile(Fresh fresh) {
+        return fresh.configs.pop().compile();
+    }
+}
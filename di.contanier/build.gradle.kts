@@ -13,7 +13,7 @@ dependencies {
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.8.2")
     testRuntimeOnly("org.junit.vintage:junit-vintage-engine:5.8.2")
     testRuntimeOnly("org.junit.platform:junit-platform-runner:1.8.2")
-    testImplementation("org.mockito:mockito-core:4.3.1")
+    testImplementation("org.mockito:mockito-core:5.11.0")
     testImplementation("jakarta.inject:jakarta.inject-tck:2.0.1")
 }
 tasks.test {
@@ -40,3 +40,12 @@ tasks.build {
     dependsOn(tasks.spotlessApply)
 }
 tasks.register("prepareKotlinBuildScriptModel") {}
+
+// runs the tests on a Java 21 runtime, where ScopedValueScope binds java.lang.ScopedValue
+val java21Test by tasks.registering(Test::class) {
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    javaLauncher.set(javaToolchains.launcherFor {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    })
+}
@@ -0,0 +1,112 @@
+package geektime.tdd.di;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class BootTracer {
+    static final Span NONE = () -> {};
+
+    private final long origin = System.nanoTime();
+    private final long pid = ProcessHandle.current().pid();
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final Map<Long, String> threads = new ConcurrentHashMap<>();
+
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    record Event(String name, String category, long thread, long start, long duration, Map<String, String> args) {}
+
+    public Span span(String name, String category) {
+        return span(name, category, Map.of());
+    }
+
+    public Span span(String name, String category, Map<String, String> args) {
+        Thread thread = Thread.currentThread();
+        long id = thread.getId();
+        threads.putIfAbsent(id, thread.getName());
+        long start = System.nanoTime();
+        return () -> events.add(new Event(name, category, id, start - origin, System.nanoTime() - start, args));
+    }
+
+    List<Event> events() {
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparingLong(Event::start)
+                .thenComparing(Comparator.comparingLong(Event::duration).reversed()));
+        return sorted;
+    }
+
+    public void write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+    }
+
+    public void write(Writer writer) throws IOException {
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        String separator = "\n";
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            writer.write(separator);
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + pid + ",\"tid\":" + thread.getKey()
+                    + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+            separator = ",\n";
+        }
+        for (Event event : events()) {
+            writer.write(separator);
+            writer.write("{\"name\":" + quote(event.name()) + ",\"cat\":" + quote(event.category())
+                    + ",\"ph\":\"X\",\"ts\":" + micros(event.start()) + ",\"dur\":" + micros(event.duration())
+                    + ",\"pid\":" + pid + ",\"tid\":" + event.thread() + ",\"args\":" + args(event.args()) + "}");
+            separator = ",\n";
+        }
+        writer.write("\n]}\n");
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String args(Map<String, String> args) {
+        StringBuilder json = new StringBuilder("{");
+        new TreeMap<>(args).forEach((key, value) -> {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(quote(key)).append(':').append(quote(value));
+        });
+        return json.append('}').toString();
+    }
+
+    static String quote(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,71 @@
+package geektime.tdd.di;
+
+import jakarta.inject.Provider;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+class CompiledContext implements ContainerContext {
+    private final Map<Component, Integer> slots = new HashMap<>();
+    private final ComponentProvider<?>[] providers;
+    private final Provider<?>[] handles;
+    private final ContainerContext parent;
+
+    CompiledContext(Map<Component, ComponentProvider<?>> components, ContainerContext parent) {
+        this.parent = parent;
+        providers = new ComponentProvider<?>[components.size()];
+        handles = new Provider<?>[components.size()];
+        for (Map.Entry<Component, ComponentProvider<?>> entry : components.entrySet()) {
+            int slot = slots.size();
+            ComponentProvider<?> provider = entry.getValue();
+            slots.put(entry.getKey(), slot);
+            providers[slot] = provider;
+            handles[slot] = new ProviderHandle<>(provider, this);
+        }
+    }
+
+    @Override
+    public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef) {
+        return Optional.ofNullable(getOrNull(componentRef));
+    }
+
+    @Override
+    public <ComponentType> ComponentType getOrNull(ComponentRef<ComponentType> componentRef) {
+        if (componentRef.isContainer()
+                && componentRef.getContainer() != Provider.class
+                && componentRef.getContainer() != Lazy.class) {
+            return null;
+        }
+        int slot = slots.getOrDefault(componentRef.component(), -1);
+        if (slot < 0) {
+            return parent != null ? parent.getOrNull(componentRef) : null;
+        }
+        if (!componentRef.isContainer()) {
+            return (ComponentType) providers[slot].get(this);
+        }
+        return (ComponentType)
+                (componentRef.getContainer() == Lazy.class ? new LazyHandle<>(handles[slot]) : handles[slot]);
+    }
+
+    @Override
+    public boolean contains(Component component) {
+        return slots.containsKey(component) || parent != null && parent.contains(component);
+    }
+
+    // -1 marks refs resolved by lookup: containers and components of the parent
+    int[] slots(ComponentRef<?>[] componentRefs) {
+        int[] result = new int[componentRefs.length];
+        for (int i = 0; i < componentRefs.length; i++) {
+            result[i] = componentRefs[i].isContainer() ? -1 : slots.getOrDefault(componentRefs[i].component(), -1);
+        }
+        return result;
+    }
+
+    Object[] require(ComponentRef<?>[] componentRefs, int[] slots) {
+        Object[] components = new Object[componentRefs.length];
+        for (int i = 0; i < componentRefs.length; i++) {
+            components[i] = slots[i] < 0 ? require(componentRefs[i]) : providers[slots[i]].get(this);
+        }
+        return components;
+    }
+}
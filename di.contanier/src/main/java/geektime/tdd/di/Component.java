@@ -1,5 +1,281 @@
 package geektime.tdd.di;
 
+import static java.lang.invoke.MethodType.methodType;
+
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public final class Component {
+    // interned components hang off their type, so they go away together with its class loader
+    private static final ClassValue<Interned> interned = new ClassValue<>() {
+        @Override
+        protected Interned computeValue(Class<?> type) {
+            return new Interned(type);
+        }
+    };
+    private static final ThreadLocal<Probe> probes = ThreadLocal.withInitial(Probe::new);
+    private static final VarHandle REF;
+
+    static {
+        try {
+            REF = MethodHandles.lookup().findVarHandle(Component.class, "ref", ComponentRef.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public static Component of(Class<?> type, Annotation qualifier) {
+        return of(type, qualifier, null);
+    }
+
+    // the Set or Map multibinding collecting components of the type
+    static Component of(Class<?> type, Annotation qualifier, Class<?> collection) {
+        Interned components = interned.get(type);
+        if (qualifier == null && collection == null) {
+            return components.unqualified;
+        }
+        Probe probe = probes.get().of(type, qualifier, collection);
+        Component existing;
+        try {
+            existing = components.qualified.get(probe);
+        } finally {
+            probe.clear();
+        }
+        if (existing != null) {
+            return existing;
+        }
+        Component component = new Component(type, qualifier, collection);
+        existing = components.qualified.putIfAbsent(component, component);
+        return existing != null ? existing : component;
+    }
+
+    private final Class<?> type;
+    private final Annotation qualifier;
+    private final Class<?> collection;
+    private final Key key;
+    private final int hash;
+    private ComponentRef<?> ref;
+
+    public Component(Class<?> type, Annotation qualifier) {
+        this(type, qualifier, null);
+    }
+
+    private Component(Class<?> type, Annotation qualifier, Class<?> collection) {
+        this.type = type;
+        this.qualifier = qualifier;
+        this.collection = collection;
+        this.key = qualifier != null ? new Key(qualifier) : null;
+        this.hash = hash(type, key != null ? key.hash : 0, collection);
+    }
+
+    private static int hash(Class<?> type, int qualifier, Class<?> collection) {
+        return 31 * (31 * Objects.hashCode(type) + qualifier) + Objects.hashCode(collection);
+    }
+
+    ComponentRef<?> ref() {
+        return (ComponentRef<?>) REF.getAcquire(this);
+    }
+
+    // the first ref published wins, so every caller shares one instance
+    ComponentRef<?> ref(ComponentRef<?> candidate) {
+        ComponentRef<?> witness = (ComponentRef<?>) REF.compareAndExchange(this, null, candidate);
+        return witness != null ? witness : candidate;
+    }
+
+    public Class<?> type() {
+        return type;
+    }
+
+    public Annotation qualifier() {
+        return qualifier;
+    }
+
+    public Class<?> collection() {
+        return collection;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Component that
+                && hash == that.hash
+                && type == that.type
+                && collection == that.collection
+                && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (collection != null) {
+            return "Component[type=" + type + ", qualifier=" + qualifier + ", collection=" + collection + "]";
+        }
+        return "Component[type=" + type + ", qualifier=" + qualifier + "]";
+    }
+
+    private static final class Interned {
+        private final Component unqualified;
+        private final ConcurrentMap<Object, Component> qualified = new ConcurrentHashMap<>();
+
+        Interned(Class<?> type) {
+            unqualified = new Component(type, null);
+        }
+    }
+
+    // stands in for a component during lookup, so finding an interned one allocates nothing
+    private static final class Probe {
+        private Class<?> type;
+        private Annotation qualifier;
+        private Class<?> collection;
+        private int hash;
+
+        Probe of(Class<?> type, Annotation qualifier, Class<?> collection) {
+            this.type = type;
+            this.qualifier = qualifier;
+            this.collection = collection;
+            this.hash = hash(type, qualifier != null ? Key.hash(qualifier) : 0, collection);
+            return this;
+        }
+
+        void clear() {
+            type = null;
+            qualifier = null;
+            collection = null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Component that
+                    && hash == that.hash
+                    && type == that.type
+                    && collection == that.collection
+                    && (that.key == null ? qualifier == null : qualifier != null && that.key.matches(qualifier));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // qualifier normalized to its annotation type and member values, so the hash is computed once
+    private static final class Key {
+        private static final ClassValue<MethodHandle[]> members = new ClassValue<>() {
+            @Override
+            protected MethodHandle[] computeValue(Class<?> annotationType) {
+                Method[] methods = annotationType.getDeclaredMethods();
+                Arrays.sort(methods, Comparator.comparing(Method::getName));
+                MethodHandle[] handles = new MethodHandle[methods.length];
+                for (int i = 0; i < methods.length; i++) {
+                    try {
+                        methods[i].setAccessible(true);
+                        handles[i] = MethodHandles.lookup()
+                                .unreflect(methods[i])
+                                .asType(methodType(Object.class, Annotation.class));
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalArgumentException(annotationType.toString(), e);
+                    }
+                }
+                return handles;
+            }
+        };
+
+        private final Class<? extends Annotation> annotationType;
+        private final Object[] values;
+        private final int hash;
+
+        Key(Annotation qualifier) {
+            annotationType = qualifier.annotationType();
+            MethodHandle[] handles = members.get(annotationType);
+            values = new Object[handles.length];
+            int hash = 1;
+            for (int i = 0; i < handles.length; i++) {
+                values[i] = value(handles[i], qualifier);
+                hash = 31 * hash + valueHash(values[i]);
+            }
+            this.hash = 31 * annotationType.hashCode() + hash;
+        }
+
+        // equal to the hash of the key the qualifier normalizes to, computed without building that key
+        static int hash(Annotation qualifier) {
+            Class<? extends Annotation> annotationType = qualifier.annotationType();
+            int hash = 1;
+            for (MethodHandle member : members.get(annotationType)) {
+                hash = 31 * hash + valueHash(value(member, qualifier));
+            }
+            return 31 * annotationType.hashCode() + hash;
+        }
+
+        boolean matches(Annotation qualifier) {
+            if (qualifier.annotationType() != annotationType) {
+                return false;
+            }
+            MethodHandle[] handles = members.get(annotationType);
+            for (int i = 0; i < handles.length; i++) {
+                if (!Objects.deepEquals(values[i], value(handles[i], qualifier))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Object value(MethodHandle member, Annotation qualifier) {
+            try {
+                return (Object) member.invokeExact(qualifier);
+            } catch (Throwable e) {
+                throw new IllegalArgumentException(qualifier.toString(), e);
+            }
+        }
+
+        // same as Arrays.deepHashCode does for each element, without wrapping the value in an array
+        private static int valueHash(Object value) {
+            if (value instanceof Object[] array) {
+                return Arrays.deepHashCode(array);
+            } else if (value instanceof byte[] array) {
+                return Arrays.hashCode(array);
+            } else if (value instanceof short[] array) {
+                return Arrays.hashCode(array);
+            } else if (value instanceof int[] array) {
+                return Arrays.hashCode(array);
+            } else if (value instanceof long[] array) {
+                return Arrays.hashCode(array);
+            } else if (value instanceof char[] array) {
+                return Arrays.hashCode(array);
+            } else if (value instanceof float[] array) {
+                return Arrays.hashCode(array);
+            } else if (value instanceof double[] array) {
+                return Arrays.hashCode(array);
+            } else if (value instanceof boolean[] array) {
+                return Arrays.hashCode(array);
+            }
+            return Objects.hashCode(value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key that
+                    && hash == that.hash
+                    && annotationType == that.annotationType
+                    && Arrays.deepEquals(values, that.values);
+        }
 
-public record Component(Class<?> type, Annotation qualifier) {}
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
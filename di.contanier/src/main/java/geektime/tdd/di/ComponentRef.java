@@ -3,29 +3,58 @@ package geektime.tdd.di;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ComponentRef<ComponentType> {
+    // container refs are interned next to their component type, so they go away together with its class loader
+    private static final ClassValue<ConcurrentMap<ComponentRef<?>, ComponentRef<?>>> interned = new ClassValue<>() {
+        @Override
+        protected ConcurrentMap<ComponentRef<?>, ComponentRef<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     public static <ComponentType> ComponentRef<ComponentType> of(Class<ComponentType> component) {
-        return new ComponentRef(component, null);
+        return of(Component.of(component, null));
     }
 
     public static <ComponentType> ComponentRef<ComponentType> of(Class<ComponentType> component, Annotation qualifier) {
-        return new ComponentRef(component, qualifier);
+        return of(Component.of(component, qualifier));
     }
 
     public static ComponentRef of(Type type) {
-        return new ComponentRef(type, null);
+        return of(type, null);
     }
 
     public static ComponentRef of(Type type, Annotation qualifier) {
-        return new ComponentRef(type, qualifier);
+        if (type instanceof Class<?> component) {
+            return of(Component.of(component, qualifier));
+        }
+        ComponentRef<?> componentRef = new ComponentRef(type, qualifier);
+        if (componentRef.component() == null) {
+            return componentRef;
+        }
+        ComponentRef<?> existing =
+                interned.get(componentRef.component().type()).putIfAbsent(componentRef, componentRef);
+        return existing != null ? existing : componentRef;
+    }
+
+    // the plain ref of an interned component is kept on the component, so looking it up again allocates nothing
+    private static <ComponentType> ComponentRef<ComponentType> of(Component component) {
+        ComponentRef<?> componentRef = component.ref();
+        return (ComponentRef<ComponentType>)
+                (componentRef != null ? componentRef : component.ref(new ComponentRef<>(component)));
     }
 
     private Type container;
     private Component component;
+    private int hash;
 
-    ComponentRef(Annotation qualifier) {
+    protected ComponentRef(Annotation qualifier) {
         Type type = ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
         init(type, qualifier);
     }
@@ -34,6 +63,11 @@ public class ComponentRef<ComponentType> {
         init(type, qualifier);
     }
 
+    private ComponentRef(Component component) {
+        this.component = component;
+        this.hash = Objects.hashCode(component);
+    }
+
     protected ComponentRef() {
         Type type = ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
         init(type, null);
@@ -41,12 +75,21 @@ public class ComponentRef<ComponentType> {
 
     private void init(Type type, Annotation qualifier) {
         if (type instanceof ParameterizedType container) {
-            this.container = container.getRawType();
-            this.component = new Component((Class<ComponentType>) container.getActualTypeArguments()[0], qualifier);
+            Type raw = container.getRawType();
+            Type[] arguments = container.getActualTypeArguments();
+            if (raw == Set.class) {
+                this.component = Component.of((Class<?>) arguments[0], qualifier, Set.class);
+            } else if (raw == Map.class && arguments[0] == String.class) {
+                this.component = Component.of((Class<?>) arguments[1], qualifier, Map.class);
+            } else {
+                this.container = raw;
+                this.component = Component.of((Class<ComponentType>) arguments[0], qualifier);
+            }
         }
         if (type instanceof Class<?>) {
-            this.component = new Component((Class<ComponentType>) type, qualifier);
+            this.component = Component.of((Class<ComponentType>) type, qualifier);
         }
+        this.hash = 31 * Objects.hashCode(container) + Objects.hashCode(component);
     }
 
     public Type getContainer() {
@@ -70,11 +113,13 @@ public class ComponentRef<ComponentType> {
             return false;
         }
         ComponentRef<?> that = (ComponentRef<?>) o;
-        return Objects.equals(container, that.container) && Objects.equals(component, that.component);
+        return hash == that.hash
+                && Objects.equals(container, that.container)
+                && Objects.equals(component, that.component);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(container, component);
+        return hash;
     }
 }
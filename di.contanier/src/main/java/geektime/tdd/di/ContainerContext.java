@@ -0,0 +1,5 @@
+package geektime.tdd.di;
+
+interface ContainerContext extends Context {
+    boolean contains(Component component);
+}
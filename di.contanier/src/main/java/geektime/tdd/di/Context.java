@@ -1,7 +1,30 @@
 package geektime.tdd.di;
 
+import java.text.MessageFormat;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 public interface Context {
     <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef);
+
+    default <ComponentType> ComponentType getOrNull(ComponentRef<ComponentType> componentRef) {
+        return get(componentRef).orElse(null);
+    }
+
+    default <ComponentType> ComponentType require(ComponentRef<ComponentType> componentRef) {
+        ComponentType component = getOrNull(componentRef);
+        if (component == null) {
+            throw new NoSuchElementException(
+                    MessageFormat.format("Unsatisfied resolution: {0}", componentRef.component()));
+        }
+        return component;
+    }
+
+    default Object[] require(ComponentRef<?>[] componentRefs) {
+        Object[] components = new Object[componentRefs.length];
+        for (int i = 0; i < componentRefs.length; i++) {
+            components[i] = require(componentRefs[i]);
+        }
+        return components;
+    }
 }
@@ -1,27 +1,39 @@
 package geektime.tdd.di;
 
-import static geektime.tdd.di.ContextConfigError.circularDependencies;
-import static geektime.tdd.di.ContextConfigError.unsatisfiedResolution;
 import static geektime.tdd.di.ContextConfigException.illegalAnnotation;
 import static java.util.Arrays.stream;
-import static java.util.stream.Collectors.joining;
 
 import jakarta.inject.Provider;
 import jakarta.inject.Qualifier;
 import jakarta.inject.Scope;
 import jakarta.inject.Singleton;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.text.MessageFormat;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.Stack;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,13 +41,56 @@ public class ContextConfig {
     private final Map<Component, ComponentProvider<?>> components = new HashMap<>();
     private final Map<Class<?>, ScopeProvider> scopes = new HashMap<>();
     private final List<Component> staticsComponents = new ArrayList<>();
+    private final Set<Component> dirty = new LinkedHashSet<>();
+    private boolean revalidate;
+    private int injectedStatics;
+    private final Map<String, Supplier<ComponentProvider<?>>> loaded;
+    private final Map<String, Supplier<ComponentProvider<?>>> indexed = new HashMap<>();
+    private InjectionEngine engine = InjectionEngine.METHOD_HANDLE;
+    private Executor eager;
+    private Instrumentation instrumentation;
+    private BootTracer tracer;
+    private final Map<Component, Snapshot.Source> sources = new HashMap<>();
+    private Snapshot restored;
+    private final Map<Component, ComponentProvider<?>> restoredProviders = new HashMap<>();
+    private final ContainerContext parent;
+    private final Map<Component, Multibinding> multibindings = new HashMap<>();
+    private ScopeCheck scopeCheck = ScopeCheck.WARN;
+    private final List<Diagnostics.Widening> widenings = new ArrayList<>();
 
     public ContextConfig() {
-        scope(Singleton.class, SingletonProvider::new);
+        this((ContainerContext) null);
+    }
+
+    public ContextConfig(final Context parent) {
+        this(container(parent));
+    }
+
+    private ContextConfig(final ContainerContext parent) {
+        this.parent = parent;
+        scope(Singleton.class, new ScopeProvider() {
+            @Override
+            public ComponentProvider<?> create(ComponentProvider<?> provider) {
+                return new SingletonProvider<>(provider);
+            }
+
+            @Override
+            public Lifetime lifetime() {
+                return Lifetime.CONTAINER;
+            }
+        });
+        this.loaded = ServiceIndexes.of(Thread.currentThread().getContextClassLoader());
+    }
+
+    private static ContainerContext container(Context parent) {
+        if (parent instanceof ContainerContext container) {
+            return container;
+        }
+        throw ContextConfigException.illegalParent(parent);
     }
 
     public <Type> void instance(Class<Type> type, Type instance) {
-        bind(new Component(type, null), (ComponentProvider<Object>) context -> instance, false);
+        bind(Component.of(type, null), (ComponentProvider<Object>) context -> instance, false);
     }
 
     public <Type> void instance(Class<Type> type, Type instance, Annotation... annotations) {
@@ -52,19 +107,97 @@ public class ContextConfig {
         bindComponent(type, implementation, annotations, false);
     }
 
+    public <Type> void element(Class<Type> type, Class<? extends Type> implementation, Annotation... annotations) {
+        contributeComponent(type, Set.class, null, implementation, annotations);
+    }
+
+    public <Type> void element(Class<Type> type, Type instance, Annotation... annotations) {
+        contributeInstance(type, Set.class, null, instance, annotations);
+    }
+
+    public <Type> void entry(
+            Class<Type> type, String key, Class<? extends Type> implementation, Annotation... annotations) {
+        contributeComponent(type, Map.class, key, implementation, annotations);
+    }
+
+    public <Type> void entry(Class<Type> type, String key, Type instance, Annotation... annotations) {
+        contributeInstance(type, Map.class, key, instance, annotations);
+    }
+
+    private void contributeComponent(
+            Class<?> type, Class<?> collection, String key, Class<?> implementation, Annotation[] annotations) {
+        Bindings bindings = new Bindings(implementation, annotations);
+        Class<? extends Annotation> scope =
+                bindings.scope().map(Annotation::annotationType).orElse(null);
+        ComponentProvider<?> injection =
+                instrumented(Component.of(implementation, null), injectionProvider(implementation), scope);
+        contribute(
+                type, collection, key, bindings.qualifiers(), bindings.provider(injection, this::scopeProvider), false);
+    }
+
+    private void contributeInstance(
+            Class<?> type, Class<?> collection, String key, Object instance, Annotation[] annotations) {
+        Bindings bindings = new Bindings(type, annotations);
+        contribute(type, collection, key, bindings.qualifiers(), context -> instance, true);
+    }
+
+    private void contribute(
+            Class<?> type,
+            Class<?> collection,
+            String key,
+            List<Annotation> qualifiers,
+            ComponentProvider<?> element,
+            boolean constant) {
+        for (Component component : components(type, qualifiers)) {
+            Multibinding multibinding = multibindings.get(Component.of(type, component.qualifier(), collection));
+            if (multibinding == null) {
+                multibinding = new Multibinding(Component.of(type, component.qualifier(), collection));
+                bind(multibinding.component(), multibinding, false);
+                multibindings.put(multibinding.component(), multibinding);
+            }
+            revalidate |= dirty.add(multibinding.component());
+            multibinding.add(key, element, constant);
+        }
+    }
+
     private void bindComponent(Class<?> type, Class<?> implementation, Annotation[] annotations, boolean statics) {
+        bindComponent(type, implementation, annotations, statics, () -> injectionProvider(implementation));
+    }
+
+    private void bindComponent(
+            Class<?> type,
+            Class<?> implementation,
+            Annotation[] annotations,
+            boolean statics,
+            Supplier<ComponentProvider<?>> scan) {
         Bindings bindings = new Bindings(implementation, annotations);
-        bind(type, bindings.qualifiers(), bindings.provider(this::scopeProvider), statics);
+        ComponentProvider<?> injection = scan.get();
+        Class<? extends Annotation> scope =
+                bindings.scope().map(Annotation::annotationType).orElse(null);
+        List<Component> keys = components(type, bindings.qualifiers());
+        bind(
+                type,
+                bindings.qualifiers(),
+                bindings.provider(instrumented(keys.get(0), injection, scope), this::scopeProvider),
+                statics);
+        Snapshot.Source source = new Snapshot.Source(implementation, scope, injection);
+        keys.forEach(component -> sources.put(component, source));
     }
 
     private <Type> void bind(
             final Class<Type> type, List<Annotation> qualifiers, final ComponentProvider<?> provider, boolean statics) {
-        if (qualifiers.isEmpty()) {
-            bind(new Component(type, null), provider, statics);
+        for (Component component : components(type, qualifiers)) {
+            bind(component, provider, statics);
         }
-        for (Annotation qualifier : qualifiers) {
-            bind(new Component(type, qualifier), provider, statics);
+    }
+
+    private static List<Component> components(Class<?> type, List<Annotation> qualifiers) {
+        if (qualifiers.isEmpty()) {
+            return List.of(Component.of(type, null));
         }
+        return qualifiers.stream()
+                .map(qualifier -> Component.of(type, qualifier))
+                .toList();
     }
 
     static class Bindings {
@@ -111,89 +244,475 @@ public class ContextConfig {
         }
 
         private ComponentProvider<?> provider(
+                ComponentProvider<?> injectProvider,
                 BiFunction<Annotation, ComponentProvider<?>, ComponentProvider<?>> scoped) {
-            ComponentProvider<?> injectProvider = new InjectionProvider<>(type);
             return scope().<ComponentProvider<?>>map(s -> scoped.apply(s, injectProvider))
                     .orElse(injectProvider);
         }
     }
 
     public void from(final Config config) {
-        new DSL(config).bind();
+        traced(span("from", config.getClass(), "binding"), () -> new DSL(config).bind());
     }
 
     private @interface Illegal {}
 
+    private ComponentProvider<?> injectionProvider(Class<?> type) {
+        Supplier<ComponentProvider<?>> factory = indexed.get(type.getName());
+        if (factory == null) {
+            factory = loaded.get(type.getName());
+        }
+        if (factory != null) {
+            return factory.get();
+        }
+        return traced(span("scan", type, "scan"), () -> new InjectionProvider<>(type, engine));
+    }
+
+    private ComponentProvider<?> instrumented(
+            Component component, ComponentProvider<?> provider, Class<? extends Annotation> scope) {
+        if (instrumentation == null) {
+            return provider;
+        }
+        return new InstrumentedProvider<>(component, provider, instrumentation, scope == Singleton.class);
+    }
+
     private ComponentProvider<?> scopeProvider(Annotation scope, final ComponentProvider<?> injectProvider) {
-        if (!scopes.containsKey(scope.annotationType())) {
-            throw ContextConfigException.unknownScope(scope.annotationType());
+        return scopeProvider(scope.annotationType(), injectProvider);
+    }
+
+    private ComponentProvider<?> scopeProvider(
+            Class<? extends Annotation> scope, final ComponentProvider<?> injectProvider) {
+        if (!scopes.containsKey(scope)) {
+            throw ContextConfigException.unknownScope(scope);
         }
-        return scopes.get(scope.annotationType()).create(injectProvider);
+        return scopes.get(scope).create(injectProvider);
     }
 
     private <Type, Implementation extends Type> void bind(
             Component component, final ComponentProvider<Implementation> provider, boolean statics) {
-        if (components.containsKey(component)) {
+        if (components.containsKey(component) || parent != null && parent.contains(component)) {
             throw ContextConfigException.duplicated(component);
         }
         if (statics) {
             staticsComponents.add(component);
         }
         components.put(component, provider);
+        dirty.add(component);
     }
 
     public <Type> void scope(final Class<Type> scope, final ScopeProvider provider) {
         scopes.put(scope, provider);
     }
 
+    public void engine(final InjectionEngine engine) {
+        this.engine = engine;
+    }
+
+    public void index(final InjectionIndex index) {
+        indexed.putAll(index.providers());
+    }
+
+    public void scopeCheck(final ScopeCheck scopeCheck) {
+        this.scopeCheck = scopeCheck;
+    }
+
+    public void instrument(final Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    public void trace(final BootTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    private BootTracer.Span span(String name, String category) {
+        return tracer != null ? tracer.span(name, category) : BootTracer.NONE;
+    }
+
+    private BootTracer.Span span(String action, Object subject, String category) {
+        if (tracer == null) {
+            return BootTracer.NONE;
+        }
+        return tracer.span(action + " " + (subject instanceof Class<?> type ? type.getName() : subject), category);
+    }
+
+    private static void traced(BootTracer.Span span, Runnable body) {
+        try (span) {
+            body.run();
+        }
+    }
+
+    private static <T> T traced(BootTracer.Span span, Supplier<T> body) {
+        try (span) {
+            return body.get();
+        }
+    }
+
+    public void eager() {
+        eager(ForkJoinPool.commonPool());
+    }
+
+    public void eager(final Executor executor) {
+        this.eager = executor;
+    }
+
+    public void snapshot(Path file) throws IOException {
+        checkDependencies();
+        Map<ComponentProvider<?>, Integer> providers = new IdentityHashMap<>();
+        List<Snapshot.Entry> entries = new ArrayList<>();
+        components.forEach((component, provider) -> {
+            int group = providers.computeIfAbsent(provider, p -> providers.size());
+            boolean statics = staticsComponents.contains(component);
+            Snapshot.Source source = sources.get(component);
+            if (source == null) {
+                entries.add(new Snapshot.Entry(component, statics, group, null, null, null, List.of(), List.of()));
+            } else if (source.injection() instanceof InjectionProvider<?> injection) {
+                entries.add(new Snapshot.Entry(
+                        component,
+                        statics,
+                        group,
+                        source.implementation(),
+                        source.scope(),
+                        injection.constructor(),
+                        injection.fields(),
+                        injection.methods()));
+            } else {
+                entries.add(new Snapshot.Entry(
+                        component,
+                        statics,
+                        group,
+                        source.implementation(),
+                        source.scope(),
+                        null,
+                        List.of(),
+                        List.of()));
+            }
+        });
+        Snapshot.write(file, entries, topologicalOrder());
+    }
+
+    public boolean restore(Path file) throws IOException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Optional<Snapshot> snapshot =
+                Snapshot.read(file, loader != null ? loader : ContextConfig.class.getClassLoader());
+        if (snapshot.isEmpty()) {
+            return false;
+        }
+        Map<Integer, ComponentProvider<?>> providers = new HashMap<>();
+        for (Snapshot.Entry entry : snapshot.get().entries()) {
+            if (entry.implementation() == null) {
+                continue;
+            }
+            ComponentProvider<?> injection = entry.constructor() != null
+                    ? InjectionProvider.from(
+                            (Class<Object>) entry.implementation(),
+                            engine,
+                            (Constructor<Object>) entry.constructor(),
+                            entry.fields(),
+                            entry.methods())
+                    : injectionProvider(entry.implementation());
+            ComponentProvider<?> provider = providers.computeIfAbsent(entry.provider(), group -> {
+                ComponentProvider<?> instrumented = instrumented(entry.component(), injection, entry.scope());
+                return entry.scope() != null ? scopeProvider(entry.scope(), instrumented) : instrumented;
+            });
+            bind(entry.component(), provider, entry.statics());
+            restoredProviders.put(entry.component(), provider);
+            sources.put(entry.component(), new Snapshot.Source(entry.implementation(), entry.scope(), injection));
+        }
+        restored = snapshot.get();
+        return true;
+    }
+
+    private boolean isRestored() {
+        return restored != null
+                && restored.components().equals(components.keySet())
+                && components.entrySet().stream()
+                        .allMatch(binding -> isRestored(binding.getKey())
+                                || binding.getValue().getDependencies().isEmpty());
+    }
+
+    private boolean isRestored(Component component) {
+        return restoredProviders.containsKey(component)
+                && components.get(component) == restoredProviders.get(component);
+    }
+
+    // restored bindings were validated with the snapshot, once all its components are bound again only the others
+    // and what they reach can form a cycle or miss a dependency
+    private Collection<Component> unverified(
+            Collection<Component> nodes, Function<Component, List<ComponentRef<?>>> dependencies) {
+        if (restored == null || !components.keySet().containsAll(restored.components())) {
+            return nodes;
+        }
+        Deque<Component> pending = new ArrayDeque<>();
+        nodes.stream().filter(component -> !isRestored(component)).forEach(pending::add);
+        Set<Component> reached = new LinkedHashSet<>(pending);
+        while (!pending.isEmpty()) {
+            for (ComponentRef<?> dependency : dependencies.apply(pending.poll())) {
+                if (components.containsKey(dependency.component()) && reached.add(dependency.component())) {
+                    pending.add(dependency.component());
+                }
+            }
+        }
+        return reached;
+    }
+
+    public DependencyGraph graph() {
+        checkDependencies();
+        List<DependencyGraph.Node> nodes = new ArrayList<>();
+        List<DependencyGraph.Edge> edges = new ArrayList<>();
+        components.forEach((component, provider) -> {
+            Snapshot.Source source = sources.get(component);
+            nodes.add(new DependencyGraph.Node(
+                    component,
+                    source != null ? source.implementation() : null,
+                    scope(component),
+                    constructs(component)));
+            for (ComponentRef<?> dependency : provider.getDependencies()) {
+                boolean deferred = dependency.isContainer();
+                if (!deferred
+                        || dependency.getContainer() == Provider.class
+                        || dependency.getContainer() == Lazy.class) {
+                    edges.add(new DependencyGraph.Edge(component, dependency.component(), deferred));
+                }
+            }
+        });
+        return new DependencyGraph(
+                nodes, edges, instrumentation instanceof Metrics metrics ? metrics.snapshot() : Map.of());
+    }
+
+    public Diagnostics diagnostics() {
+        DependencyGraph graph = graph();
+        Map<Component, Long> objects = new LinkedHashMap<>();
+        graph.roots().forEach(root -> objects.put(root, graph.objectsPerResolution(root)));
+        return new Diagnostics(List.copyOf(widenings), Collections.unmodifiableMap(objects));
+    }
+
+    private Class<? extends Annotation> scope(Component component) {
+        Snapshot.Source source = sources.get(component);
+        return source != null ? source.scope() : null;
+    }
+
+    private ScopeProvider.Lifetime lifetime(Class<? extends Annotation> scope) {
+        ScopeProvider provider = scopes.get(scope);
+        return provider != null ? provider.lifetime() : ScopeProvider.Lifetime.TASK;
+    }
+
+    private int constructs(Component component) {
+        Multibinding multibinding = multibindings.get(component);
+        if (multibinding != null) {
+            return multibinding.isConstant() ? 0 : multibinding.prototypes() + 1;
+        }
+        return sources.containsKey(component) && scope(component) == null ? 1 : 0;
+    }
+
+    private List<Diagnostics.Widening> scopeWidenings(
+            Collection<Component> nodes, Function<Component, List<ComponentRef<?>>> dependencies) {
+        List<Diagnostics.Widening> found = new ArrayList<>();
+        for (Component component : nodes) {
+            Class<? extends Annotation> scope = scope(component);
+            if (scope != null) {
+                capture(List.of(component), scope, dependencies, new HashSet<>(), found);
+            }
+        }
+        return found;
+    }
+
+    private void capture(
+            List<Component> path,
+            Class<? extends Annotation> scope,
+            Function<Component, List<ComponentRef<?>>> dependencies,
+            Set<Component> visited,
+            List<Diagnostics.Widening> found) {
+        for (ComponentRef<?> dependency : dependencies.apply(path.get(path.size() - 1))) {
+            Component captured = dependency.component();
+            if (dependency.isContainer() || !components.containsKey(captured)) {
+                continue;
+            }
+            if (!visited.add(captured) && path.size() > 1) {
+                continue;
+            }
+            List<Component> next =
+                    Stream.concat(path.stream(), Stream.of(captured)).toList();
+            Class<? extends Annotation> dependencyScope = scope(captured);
+            boolean prototype = dependencyScope == null && constructs(captured) > 0;
+            if (prototype && path.size() == 1
+                    || dependencyScope != null && lifetime(dependencyScope).compareTo(lifetime(scope)) < 0) {
+                found.add(new Diagnostics.Widening(next, scope, dependencyScope));
+            }
+            if (prototype) {
+                capture(next, scope, dependencies, visited, found);
+            }
+        }
+    }
+
     public Context getContext() {
+        return traced(span("getContext", "boot"), () -> {
+            checkDependencies();
+            return prepare(context());
+        });
+    }
+
+    private Context context() {
+        return new ContainerContext() {
+            private final Map<Component, Provider<?>> handles = new ConcurrentHashMap<>();
 
-        Context context = new Context() {
+            @Override
+            public boolean contains(Component component) {
+                return components.containsKey(component) || parent != null && parent.contains(component);
+            }
 
             @Override
             public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef) {
+                return Optional.ofNullable(getOrNull(componentRef));
+            }
+
+            @Override
+            public <ComponentType> ComponentType getOrNull(ComponentRef<ComponentType> componentRef) {
+                ComponentProvider<?> provider = components.get(componentRef.component());
+                if (provider == null) {
+                    return parent != null ? parent.getOrNull(componentRef) : null;
+                }
                 if (componentRef.isContainer()) {
-                    if (componentRef.getContainer() != Provider.class) {
-                        return Optional.empty();
+                    if (componentRef.getContainer() != Provider.class && componentRef.getContainer() != Lazy.class) {
+                        return null;
                     }
-                    return (Optional<ComponentType>) Optional.ofNullable(components.get(componentRef.component()))
-                            .map(p -> (Provider<Object>) () -> p.get(this));
+                    Provider<?> handle = handles.computeIfAbsent(
+                            componentRef.component(), c -> new ProviderHandle<>(provider, this));
+                    return (ComponentType)
+                            (componentRef.getContainer() == Lazy.class ? new LazyHandle<>(handle) : handle);
                 }
-                return Optional.ofNullable(components.get(componentRef.component()))
-                        .map(p -> ((ComponentType) p.get(this)));
+                return (ComponentType) provider.get(this);
             }
         };
+    }
 
-        components.keySet().forEach(component -> checkDependencies(component, new Stack<>()));
-        injectStaticMembers(context);
-        return context;
+    public Context compile() {
+        return traced(span("compile", "boot"), () -> {
+            checkDependencies();
+            CompiledContext compiled = new CompiledContext(components, parent);
+            for (Snapshot.Source source : sources.values()) {
+                if (source.injection() instanceof InjectionProvider<?> provider) {
+                    provider.link(compiled);
+                }
+            }
+            Context context = prepare(compiled);
+            for (Multibinding multibinding : multibindings.values()) {
+                if (multibinding.isConstant()) {
+                    multibinding.get(context);
+                }
+            }
+            return context;
+        });
     }
 
-    private void injectStaticMembers(Context context) {
-        for (final Component component : staticsComponents) {
-            Optional.ofNullable(components.get(component)).ifPresent(p -> p.statics(context));
+    private Context prepare(Context context) {
+        traced(span("statics", "statics"), () -> injectStaticMembers(context));
+        if (eager != null) {
+            traced(span("eager", "eager"), () -> warmUp(context));
         }
+        return context;
     }
 
-    public void checkDependencies(Component component, Stack<Component> visiting) {
-        components
-                .get(component)
-                .getDependencies()
-                .forEach(dependency -> checkDependency(component, visiting, dependency));
+    private void warmUp(Context context) {
+        Map<Component, CompletableFuture<Void>> ready = new HashMap<>();
+        for (Component component : topologicalOrder()) {
+            ComponentProvider<?> provider = components.get(component);
+            CompletableFuture<Void> dependencies = CompletableFuture.allOf(provider.getDependencies().stream()
+                    .filter(dependency -> !dependency.isContainer() && ready.containsKey(dependency.component()))
+                    .map(dependency -> ready.get(dependency.component()))
+                    .toArray(CompletableFuture[]::new));
+            ready.put(
+                    component,
+                    provider instanceof SingletonProvider<?>
+                            ? dependencies.thenRunAsync(
+                                    () -> traced(span("create", component, "eager"), () -> provider.get(context)),
+                                    eager)
+                            : dependencies);
+        }
+        try {
+            CompletableFuture.allOf(ready.values().toArray(CompletableFuture[]::new))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException exception) {
+                throw exception;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
     }
 
-    private void checkDependency(Component component, Stack<Component> visiting, ComponentRef dependency) {
-        if (!components.containsKey(dependency.component())) {
-            throw unsatisfiedResolution(component, dependency.component());
+    private List<Component> topologicalOrder() {
+        if (isRestored()) {
+            return restored.order();
         }
-        if (!dependency.isContainer()) {
-            if (visiting.contains(dependency.component())) {
-                throw circularDependencies(visiting, dependency.component());
+        Map<Component, Integer> pending = new HashMap<>();
+        Map<Component, List<Component>> dependents = new HashMap<>();
+        components.forEach((component, provider) -> {
+            List<ComponentRef<?>> dependencies = provider.getDependencies().stream()
+                    .filter(dependency -> !dependency.isContainer() && components.containsKey(dependency.component()))
+                    .toList();
+            pending.put(component, dependencies.size());
+            dependencies.forEach(dependency -> dependents
+                    .computeIfAbsent(dependency.component(), c -> new ArrayList<>())
+                    .add(component));
+        });
+        Deque<Component> ready = new ArrayDeque<>();
+        pending.forEach((component, count) -> {
+            if (count == 0) {
+                ready.add(component);
+            }
+        });
+        List<Component> order = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            Component component = ready.poll();
+            order.add(component);
+            for (Component dependent : dependents.getOrDefault(component, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
             }
-            visiting.push(dependency.component());
-            checkDependencies(dependency.component(), visiting);
-            visiting.pop();
         }
+        return order;
+    }
+
+    // components bound before the last validation never gain edges, so a new cycle can only run through the
+    // new ones and only they need to be checked; a grown multibinding collection is the exception
+    private void checkDependencies() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        Collection<Component> nodes = revalidate ? components.keySet() : dirty;
+        Map<Component, List<ComponentRef<?>>> lookups = new HashMap<>();
+        Function<Component, List<ComponentRef<?>>> dependencies = component ->
+                lookups.computeIfAbsent(component, c -> components.get(c).getDependencies());
+        List<Diagnostics.Widening> found = traced(span("validate", "validation"), () -> {
+            new GraphValidator(
+                            unverified(nodes, dependencies),
+                            components,
+                            dependencies,
+                            parent != null ? parent::contains : component -> false)
+                    .validate();
+            return scopeWidenings(nodes, dependencies);
+        });
+        if (scopeCheck == ScopeCheck.REJECT && !found.isEmpty()) {
+            throw ContextConfigError.scopeWidening(found.get(0));
+        }
+        if (revalidate) {
+            widenings.clear();
+        }
+        widenings.addAll(found);
+        dirty.clear();
+        revalidate = false;
+    }
+
+    private void injectStaticMembers(Context context) {
+        List<Component> pending = staticsComponents.subList(injectedStatics, staticsComponents.size());
+        for (final Component component : pending) {
+            Optional.ofNullable(components.get(component))
+                    .ifPresent(p -> traced(span("statics", component, "statics"), () -> p.statics(context)));
+        }
+        injectedStatics = staticsComponents.size();
     }
 
     private class DSL {
@@ -204,9 +723,21 @@ public class ContextConfig {
         }
 
         public void bind() {
-            for (Declaration declaration : declarations()) {
-                declaration.value().ifPresentOrElse(declaration::bindInstance, declaration::bindComponent);
+            Map<Declaration, Optional<Object>> values = new LinkedHashMap<>();
+            declarations().forEach(declaration -> values.put(declaration, declaration.value()));
+            Map<Declaration, Supplier<ComponentProvider<?>>> scans = scan(values.keySet().stream()
+                    .filter(declaration -> values.get(declaration).isEmpty())
+                    .toList());
+            values.forEach((declaration, value) -> value.ifPresentOrElse(
+                    declaration::bindInstance,
+                    () -> declaration.bindComponent(scans.getOrDefault(declaration, declaration::scan))));
+        }
+
+        private Map<Declaration, Supplier<ComponentProvider<?>>> scan(List<Declaration> components) {
+            if (components.size() < 2) {
+                return Map.of();
             }
+            return components.parallelStream().collect(Collectors.toConcurrentMap(d -> d, Declaration::scanned));
         }
 
         private List<Declaration> declarations() {
@@ -224,11 +755,31 @@ public class ContextConfig {
             }
 
             void bindInstance(Object instance) {
-                ContextConfig.this.bindInstance(type(), instance, annotations(), statics());
+                traced(
+                        span("bind", field.getName(), "binding"),
+                        () -> ContextConfig.this.bindInstance(type(), instance, annotations(), statics()));
+            }
+
+            void bindComponent(Supplier<ComponentProvider<?>> scan) {
+                traced(
+                        span("bind", field.getName(), "binding"),
+                        () -> ContextConfig.this.bindComponent(
+                                type(), field.getType(), annotations(), statics(), scan));
+            }
+
+            private ComponentProvider<?> scan() {
+                return injectionProvider(field.getType());
             }
 
-            void bindComponent() {
-                ContextConfig.this.bindComponent(type(), field.getType(), annotations(), statics());
+            private Supplier<ComponentProvider<?>> scanned() {
+                try {
+                    ComponentProvider<?> provider = scan();
+                    return () -> provider;
+                } catch (RuntimeException | Error e) {
+                    return () -> {
+                        throw e;
+                    };
+                }
             }
 
             private Optional<Object> value() {
@@ -259,40 +810,3 @@ public class ContextConfig {
         }
     }
 }
-
-class ContextConfigError extends Error {
-    public static ContextConfigError unsatisfiedResolution(Component component, Component dependency) {
-        return new ContextConfigError(
-                MessageFormat.format("Unsatisfied resolution: {1} for {0} ", component, dependency));
-    }
-
-    public static ContextConfigError circularDependencies(Collection<Component> path, Component circular) {
-        return new ContextConfigError(MessageFormat.format(
-                "Circular dependencies: {0} -> [{1}]",
-                path.stream().map(Objects::toString).collect(joining(" -> ")), circular));
-    }
-
-    ContextConfigError(String message) {
-        super(message);
-    }
-}
-
-class ContextConfigException extends RuntimeException {
-    static ContextConfigException illegalAnnotation(Class<?> type, List<Annotation> annotations) {
-        return new ContextConfigException(MessageFormat.format(
-                "Unqualified annotations: {0} of {1}",
-                String.join(" , ", annotations.stream().map(Object::toString).toList()), type));
-    }
-
-    static ContextConfigException unknownScope(Class<? extends Annotation> annotationType) {
-        return new ContextConfigException(MessageFormat.format("Unknown scope: {0}", annotationType));
-    }
-
-    static ContextConfigException duplicated(Component component) {
-        return new ContextConfigException(MessageFormat.format("Duplicated: {0}", component));
-    }
-
-    ContextConfigException(String message) {
-        super(message);
-    }
-}
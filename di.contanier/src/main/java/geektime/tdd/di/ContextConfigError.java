@@ -0,0 +1,28 @@
+package geektime.tdd.di;
+
+import static java.util.stream.Collectors.joining;
+
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.Objects;
+
+public class ContextConfigError extends Error {
+    public static ContextConfigError unsatisfiedResolution(Component component, Component dependency) {
+        return new ContextConfigError(
+                MessageFormat.format("Unsatisfied resolution: {1} for {0} ", component, dependency));
+    }
+
+    public static ContextConfigError circularDependencies(Collection<Component> path, Component circular) {
+        return new ContextConfigError(MessageFormat.format(
+                "Circular dependencies: {0} -> [{1}]",
+                path.stream().map(Objects::toString).collect(joining(" -> ")), circular));
+    }
+
+    public static ContextConfigError scopeWidening(Diagnostics.Widening widening) {
+        return new ContextConfigError(MessageFormat.format("Scope widening: {0}", widening));
+    }
+
+    ContextConfigError(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,33 @@
+package geektime.tdd.di;
+
+import java.lang.annotation.Annotation;
+import java.text.MessageFormat;
+import java.util.List;
+
+class ContextConfigException extends RuntimeException {
+    static ContextConfigException illegalAnnotation(Class<?> type, List<Annotation> annotations) {
+        return new ContextConfigException(MessageFormat.format(
+                "Unqualified annotations: {0} of {1}",
+                String.join(" , ", annotations.stream().map(Object::toString).toList()), type));
+    }
+
+    static ContextConfigException unknownScope(Class<? extends Annotation> annotationType) {
+        return new ContextConfigException(MessageFormat.format("Unknown scope: {0}", annotationType));
+    }
+
+    static ContextConfigException illegalParent(Context context) {
+        return new ContextConfigException(MessageFormat.format("Not a container context: {0}", context));
+    }
+
+    static ContextConfigException duplicatedKey(Component component, String key) {
+        return new ContextConfigException(MessageFormat.format("Duplicated key: {0} of {1}", key, component));
+    }
+
+    static ContextConfigException duplicated(Component component) {
+        return new ContextConfigException(MessageFormat.format("Duplicated: {0}", component));
+    }
+
+    ContextConfigException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,263 @@
+package geektime.tdd.di;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public final class DependencyGraph {
+    private final Map<Component, Node> nodes = new HashMap<>();
+    private final List<Edge> edges;
+    private final Map<Component, List<Edge>> outgoing = new HashMap<>();
+    private final Map<Component, List<Edge>> incoming = new HashMap<>();
+    private final List<Component> order;
+    private final Map<Component, Integer> depths = new HashMap<>();
+    private final Map<Component, Long> objects = new HashMap<>();
+    private final Map<Component, Long> costs = new HashMap<>();
+
+    /**
+     * A bound component. {@code implementation} is null for instances and multibinding collections, {@code
+     * constructs} is how many objects the component itself creates each time it is resolved.
+     */
+    public record Node(
+            Component component, Class<?> implementation, Class<? extends Annotation> scope, int constructs) {}
+
+    /** A dependency of {@code from} on {@code to}; deferred edges go through {@code Provider} or {@code Lazy}. */
+    public record Edge(Component from, Component to, boolean deferred) {}
+
+    DependencyGraph(List<Node> nodes, List<Edge> edges, Map<Component, Metrics.Counters> metrics) {
+        nodes.forEach(node -> this.nodes.put(node.component(), node));
+        this.edges =
+                edges.stream().filter(edge -> this.nodes.containsKey(edge.to())).toList();
+        this.edges.forEach(edge -> {
+            outgoing.computeIfAbsent(edge.from(), c -> new ArrayList<>()).add(edge);
+            incoming.computeIfAbsent(edge.to(), c -> new ArrayList<>()).add(edge);
+        });
+        this.order = sort();
+        for (Component component : order) {
+            List<Edge> dependencies = eager(component);
+            depths.put(
+                    component,
+                    dependencies.stream()
+                            .mapToInt(edge -> depths.get(edge.to()) + 1)
+                            .max()
+                            .orElse(0));
+            Node node = this.nodes.get(component);
+            objects.put(
+                    component,
+                    node.constructs() == 0
+                            ? 0
+                            : node.constructs()
+                                    + dependencies.stream()
+                                            .mapToLong(edge -> objects.get(edge.to()))
+                                            .sum());
+            if (!metrics.isEmpty()) {
+                costs.put(component, node.constructs() == 0 ? 0 : own(metrics.get(component)) + cost(dependencies));
+            }
+        }
+    }
+
+    private static long own(Metrics.Counters counters) {
+        return counters != null && counters.created() > 0 ? counters.constructionNanos() / counters.created() : 0;
+    }
+
+    private long cost(List<Edge> dependencies) {
+        return dependencies.stream().mapToLong(edge -> costs.get(edge.to())).sum();
+    }
+
+    // dependencies first, deferred edges do not constrain the order
+    private List<Component> sort() {
+        Map<Component, Integer> pending = new HashMap<>();
+        nodes.keySet()
+                .forEach(component -> pending.put(component, eager(component).size()));
+        Deque<Component> ready = new ArrayDeque<>();
+        nodes.keySet().stream()
+                .filter(component -> pending.get(component) == 0)
+                .sorted(Comparator.comparing(Component::toString))
+                .forEach(ready::add);
+        List<Component> sorted = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            Component component = ready.poll();
+            sorted.add(component);
+            for (Edge edge : incoming.getOrDefault(component, List.of())) {
+                if (!edge.deferred() && pending.merge(edge.from(), -1, Integer::sum) == 0) {
+                    ready.add(edge.from());
+                }
+            }
+        }
+        return Collections.unmodifiableList(sorted);
+    }
+
+    private List<Edge> eager(Component component) {
+        return outgoing.getOrDefault(component, List.of()).stream()
+                .filter(edge -> !edge.deferred())
+                .toList();
+    }
+
+    public List<Node> nodes() {
+        return order.stream().map(nodes::get).toList();
+    }
+
+    public Optional<Node> node(Component component) {
+        return Optional.ofNullable(nodes.get(component));
+    }
+
+    public List<Edge> edges() {
+        return edges;
+    }
+
+    public List<Component> topologicalOrder() {
+        return order;
+    }
+
+    /** Components no other component builds eagerly, each resolution of one starts a fresh object graph. */
+    public List<Component> roots() {
+        return order.stream()
+                .filter(component ->
+                        incoming.getOrDefault(component, List.of()).stream().allMatch(Edge::deferred))
+                .toList();
+    }
+
+    public int fanIn(Component component) {
+        return incoming.getOrDefault(component, List.of()).size();
+    }
+
+    public int fanOut(Component component) {
+        return outgoing.getOrDefault(component, List.of()).size();
+    }
+
+    /** Length of the longest chain of eager dependencies below the component. */
+    public int depth(Component component) {
+        return depths.getOrDefault(component, 0);
+    }
+
+    public int maxDepth() {
+        return depths.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    /** Objects constructed by one resolution of the component, shared and scoped dependencies count as none. */
+    public long objectsPerResolution(Component component) {
+        return objects.getOrDefault(component, 0L);
+    }
+
+    /**
+     * Average construction time of the objects one resolution builds, from the {@link Metrics} of the config; empty
+     * when no instrumentation data covers the component.
+     */
+    public OptionalLong estimatedCost(Component component) {
+        Long cost = costs.get(component);
+        return cost != null ? OptionalLong.of(cost) : OptionalLong.empty();
+    }
+
+    public String toDot() {
+        Map<Component, Integer> ids = ids();
+        StringBuilder dot = new StringBuilder("digraph dependencies {\n");
+        for (Component component : order) {
+            Node node = nodes.get(component);
+            dot.append("  n")
+                    .append(ids.get(component))
+                    .append(" [label=")
+                    .append(BootTracer.quote(label(node)))
+                    .append(node.constructs() > 0 ? "" : ", style=filled")
+                    .append("];\n");
+        }
+        for (Edge edge : edges) {
+            dot.append("  n")
+                    .append(ids.get(edge.from()))
+                    .append(" -> n")
+                    .append(ids.get(edge.to()))
+                    .append(edge.deferred() ? " [style=dashed]" : "")
+                    .append(";\n");
+        }
+        return dot.append("}\n").toString();
+    }
+
+    public String toJson() {
+        Map<Component, Integer> ids = ids();
+        StringBuilder json = new StringBuilder("{\"nodes\":[");
+        String separator = "";
+        for (Component component : order) {
+            Node node = nodes.get(component);
+            json.append(separator)
+                    .append("{\"id\":")
+                    .append(ids.get(component))
+                    .append(",\"type\":")
+                    .append(BootTracer.quote(component.type().getName()))
+                    .append(",\"qualifier\":")
+                    .append(string(component.qualifier()))
+                    .append(",\"collection\":")
+                    .append(string(component.collection(), Class::getName))
+                    .append(",\"implementation\":")
+                    .append(string(node.implementation(), Class::getName))
+                    .append(",\"scope\":")
+                    .append(string(node.scope(), Class::getName))
+                    .append(",\"fanIn\":")
+                    .append(fanIn(component))
+                    .append(",\"fanOut\":")
+                    .append(fanOut(component))
+                    .append(",\"depth\":")
+                    .append(depth(component))
+                    .append(",\"objects\":")
+                    .append(objectsPerResolution(component));
+            OptionalLong cost = estimatedCost(component);
+            if (cost.isPresent()) {
+                json.append(",\"costNanos\":").append(cost.getAsLong());
+            }
+            json.append('}');
+            separator = ",";
+        }
+        json.append("],\"edges\":[");
+        separator = "";
+        for (Edge edge : edges) {
+            json.append(separator)
+                    .append("{\"from\":")
+                    .append(ids.get(edge.from()))
+                    .append(",\"to\":")
+                    .append(ids.get(edge.to()))
+                    .append(",\"deferred\":")
+                    .append(edge.deferred())
+                    .append('}');
+            separator = ",";
+        }
+        return json.append("]}").toString();
+    }
+
+    private Map<Component, Integer> ids() {
+        Map<Component, Integer> ids = new HashMap<>();
+        order.forEach(component -> ids.put(component, ids.size()));
+        return ids;
+    }
+
+    private static String label(Node node) {
+        Component component = node.component();
+        String type = component.type().getSimpleName();
+        if (component.collection() != null) {
+            type = component.collection().getSimpleName() + "<" + type + ">";
+        }
+        return type
+                + (component.qualifier() != null ? "\n" + component.qualifier() : "")
+                + (node.scope() != null ? "\n@" + node.scope().getSimpleName() : "");
+    }
+
+    private static String string(Object value) {
+        return string(value, Object::toString);
+    }
+
+    private static <T> String string(T value, Function<T, String> format) {
+        return value != null ? BootTracer.quote(format.apply(value)) : "null";
+    }
+
+    @Override
+    public String toString() {
+        return order.stream().map(Component::toString).collect(Collectors.joining(", ", "DependencyGraph[", "]"));
+    }
+}
@@ -0,0 +1,36 @@
+package geektime.tdd.di;
+
+import static java.util.stream.Collectors.joining;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Findings of the scope analysis run during validation: scope widenings, and for every root the number of objects
+ * one resolution constructs.
+ */
+public record Diagnostics(List<Diagnostics.Widening> widenings, Map<Component, Long> objectsPerResolution) {
+
+    /**
+     * A component of {@code scope} holding on to a dependency that should live shorter, {@code dependencyScope} is
+     * null for a prototype. {@code path} runs from the holder through the prototypes it captures to that dependency.
+     */
+    public record Widening(
+            List<Component> path, Class<? extends Annotation> scope, Class<? extends Annotation> dependencyScope) {
+        public Component component() {
+            return path.get(0);
+        }
+
+        public Component dependency() {
+            return path.get(path.size() - 1);
+        }
+
+        @Override
+        public String toString() {
+            return "@" + scope.getSimpleName() + " "
+                    + path.stream().map(Component::toString).collect(joining(" -> "))
+                    + (dependencyScope != null ? " @" + dependencyScope.getSimpleName() : " (prototype)");
+        }
+    }
+}
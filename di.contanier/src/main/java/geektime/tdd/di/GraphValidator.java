@@ -0,0 +1,159 @@
+package geektime.tdd.di;
+
+import static geektime.tdd.di.ContextConfigError.circularDependencies;
+import static geektime.tdd.di.ContextConfigError.unsatisfiedResolution;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+class GraphValidator {
+    private final List<Component> nodes;
+    private final int[][] edges;
+
+    // only the given nodes are checked, dependencies on other bound components are treated as already validated;
+    // components found by external are resolved elsewhere and can not depend back on these ones, and dependencies
+    // lets the caller share the lookups with its own checks
+    GraphValidator(
+            Collection<Component> nodes,
+            Map<Component, ComponentProvider<?>> components,
+            Function<Component, List<ComponentRef<?>>> dependencies,
+            Predicate<Component> external) {
+        this.nodes = new ArrayList<>(nodes);
+        Map<Component, Integer> ids = new HashMap<>();
+        for (Component node : this.nodes) {
+            ids.put(node, ids.size());
+        }
+        edges = new int[this.nodes.size()][];
+        for (int node = 0; node < edges.length; node++) {
+            Component component = this.nodes.get(node);
+            List<ComponentRef<?>> references = dependencies.apply(component);
+            int[] targets = new int[references.size()];
+            int count = 0;
+            for (ComponentRef<?> dependency : references) {
+                Integer target = ids.get(dependency.component());
+                if (target == null) {
+                    if (components.containsKey(dependency.component()) || external.test(dependency.component())) {
+                        continue;
+                    }
+                    throw unsatisfiedResolution(component, dependency.component());
+                }
+                if (!dependency.isContainer()) {
+                    targets[count++] = target;
+                }
+            }
+            edges[node] = Arrays.copyOf(targets, count);
+        }
+    }
+
+    void validate() {
+        List<ContextConfigError> errors = stronglyConnected().stream()
+                .filter(this::isCyclic)
+                .map(this::circular)
+                .toList();
+        if (!errors.isEmpty()) {
+            ContextConfigError error = errors.get(0);
+            errors.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    // iterative Tarjan, every node and edge is visited once
+    private List<int[]> stronglyConnected() {
+        int size = nodes.size();
+        int[] index = new int[size];
+        int[] low = new int[size];
+        int[] next = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<Integer> calls = new ArrayDeque<>();
+        List<int[]> components = new ArrayList<>();
+        int counter = 0;
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            index[root] = low[root] = counter++;
+            stack.push(root);
+            onStack[root] = true;
+            calls.push(root);
+            while (!calls.isEmpty()) {
+                int node = calls.peek();
+                if (next[node] < edges[node].length) {
+                    int target = edges[node][next[node]++];
+                    if (index[target] == -1) {
+                        index[target] = low[target] = counter++;
+                        stack.push(target);
+                        onStack[target] = true;
+                        calls.push(target);
+                    } else if (onStack[target]) {
+                        low[node] = Math.min(low[node], index[target]);
+                    }
+                    continue;
+                }
+                calls.pop();
+                if (low[node] == index[node]) {
+                    List<Integer> component = new ArrayList<>();
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack[member] = false;
+                        component.add(member);
+                    } while (member != node);
+                    components.add(
+                            component.stream().mapToInt(Integer::intValue).toArray());
+                }
+                if (!calls.isEmpty()) {
+                    int caller = calls.peek();
+                    low[caller] = Math.min(low[caller], low[node]);
+                }
+            }
+        }
+        return components;
+    }
+
+    private boolean isCyclic(int[] component) {
+        return component.length > 1 || Arrays.stream(edges[component[0]]).anyMatch(target -> target == component[0]);
+    }
+
+    // shortest cycle through the first member, found by BFS inside the component
+    private ContextConfigError circular(int[] component) {
+        boolean[] members = new boolean[nodes.size()];
+        for (int member : component) {
+            members[member] = true;
+        }
+        int start = component[0];
+        int[] parent = new int[nodes.size()];
+        Arrays.fill(parent, -1);
+        Deque<Integer> queue = new ArrayDeque<>(List.of(start));
+        int last = -1;
+        while (last == -1) {
+            int node = queue.poll();
+            for (int target : edges[node]) {
+                if (target == start) {
+                    last = node;
+                    break;
+                }
+                if (members[target] && parent[target] == -1) {
+                    parent[target] = node;
+                    queue.add(target);
+                }
+            }
+        }
+        LinkedList<Component> path = new LinkedList<>();
+        for (int node = last; node != start; node = parent[node]) {
+            path.addFirst(nodes.get(node));
+        }
+        path.addFirst(nodes.get(start));
+        return circularDependencies(path, nodes.get(start));
+    }
+}
@@ -0,0 +1,207 @@
+package geektime.tdd.di;
+
+import static java.lang.invoke.MethodHandles.arrayElementGetter;
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodHandles.permuteArguments;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public enum InjectionEngine {
+    REFLECTION(null) {
+        @Override
+        Invoker constructor(Constructor<?> constructor) {
+            return (target, arguments) -> constructor.newInstance(arguments);
+        }
+
+        @Override
+        Invoker field(Field field) {
+            return (target, arguments) -> {
+                field.set(target, arguments[0]);
+                return null;
+            };
+        }
+
+        @Override
+        Invoker method(Method method) {
+            return method::invoke;
+        }
+    },
+    METHOD_HANDLE(REFLECTION) {
+        @Override
+        Invoker constructor(Constructor<?> constructor) throws IllegalAccessException {
+            return invoker(lookup().unreflectConstructor(constructor), true, constructor.getParameterCount());
+        }
+
+        @Override
+        Invoker field(Field field) throws IllegalAccessException {
+            return invoker(lookup().unreflectSetter(field), Modifier.isStatic(field.getModifiers()), 1);
+        }
+
+        @Override
+        Invoker method(Method method) throws IllegalAccessException {
+            return invoker(
+                    lookup().unreflect(method), Modifier.isStatic(method.getModifiers()), method.getParameterCount());
+        }
+
+        @Override
+        Invoker component(Constructor<?> constructor, List<? extends AccessibleObject> members) {
+            MethodHandle create;
+            MethodHandle[] injects = new MethodHandle[members.size()];
+            try {
+                create = offset(lookup().unreflectConstructor(constructor), true, 0, constructor.getParameterCount());
+                int offset = constructor.getParameterCount();
+                for (int i = 0; i < injects.length; i++) {
+                    if (members.get(i) instanceof Field field) {
+                        injects[i] = offset(lookup().unreflectSetter(field), false, offset, 1)
+                                .asType(methodType(void.class, Object.class, Object[].class));
+                        offset += 1;
+                    } else {
+                        Method method = (Method) members.get(i);
+                        injects[i] = offset(lookup().unreflect(method), false, offset, method.getParameterCount())
+                                .asType(methodType(void.class, Object.class, Object[].class));
+                        offset += method.getParameterCount();
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                return super.component(constructor, members);
+            }
+            return (target, arguments) -> {
+                try {
+                    Object instance = (Object) create.invokeExact(target, arguments);
+                    for (MethodHandle inject : injects) {
+                        inject.invokeExact(instance, arguments);
+                    }
+                    return instance;
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e);
+                }
+            };
+        }
+
+        // reads the parameters in place from the argument array, where a spreader would want an array of its own
+        private static MethodHandle offset(MethodHandle handle, boolean statics, int offset, int parameters) {
+            MethodHandle generic = (statics ? dropArguments(handle, 0, Object.class) : handle)
+                    .asType(methodType(
+                            Object.class,
+                            Object.class,
+                            Collections.nCopies(parameters, Object.class).toArray(Class<?>[]::new)));
+            for (int i = 0; i < parameters; i++) {
+                generic = filterArguments(
+                        generic, 1 + i, insertArguments(arrayElementGetter(Object[].class), 1, offset + i));
+            }
+            return parameters == 0
+                    ? dropArguments(generic, 1, Object[].class)
+                    : permuteArguments(
+                            generic, methodType(Object.class, Object.class, Object[].class), reorder(parameters));
+        }
+
+        private static int[] reorder(int parameters) {
+            int[] reorder = new int[parameters + 1];
+            Arrays.fill(reorder, 1, reorder.length, 1);
+            return reorder;
+        }
+
+        private static Invoker invoker(MethodHandle handle, boolean statics, int parameters) {
+            MethodHandle invoker = (statics ? dropArguments(handle, 0, Object.class) : handle)
+                    .asSpreader(Object[].class, parameters)
+                    .asType(methodType(Object.class, Object.class, Object[].class));
+            return (target, arguments) -> {
+                try {
+                    return (Object) invoker.invokeExact(target, arguments);
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e);
+                }
+            };
+        }
+    },
+    HIDDEN_CLASS(METHOD_HANDLE) {
+        @Override
+        Invoker constructor(Constructor<?> constructor) throws IllegalAccessException {
+            return InvokerGenerator.point(constructor);
+        }
+
+        @Override
+        Invoker field(Field field) throws IllegalAccessException {
+            return InvokerGenerator.point(field);
+        }
+
+        @Override
+        Invoker method(Method method) throws IllegalAccessException {
+            return InvokerGenerator.point(method);
+        }
+
+        @Override
+        Invoker component(Constructor<?> constructor, List<? extends AccessibleObject> members) {
+            try {
+                return InvokerGenerator.component(
+                        constructor, members.stream().map(Member.class::cast).toList());
+            } catch (IllegalAccessException e) {
+                return super.component(constructor, members);
+            }
+        }
+    };
+
+    private final InjectionEngine fallback;
+
+    InjectionEngine(InjectionEngine fallback) {
+        this.fallback = fallback;
+    }
+
+    Invoker invoker(AccessibleObject element) {
+        try {
+            if (element instanceof Constructor<?> constructor) {
+                return constructor(constructor);
+            }
+            if (element instanceof Field field) {
+                return field(field);
+            }
+            return method((Method) element);
+        } catch (IllegalAccessException e) {
+            return fallback.invoker(element);
+        }
+    }
+
+    // creates the component and injects its instance members, each point taking its arguments in turn from one array
+    Invoker component(Constructor<?> constructor, List<? extends AccessibleObject> members) {
+        Invoker create = invoker(constructor);
+        Invoker[] injects = members.stream().map(this::invoker).toArray(Invoker[]::new);
+        int[] offsets = new int[members.size() + 1];
+        offsets[0] = constructor.getParameterCount();
+        for (int i = 0; i < injects.length; i++) {
+            offsets[i + 1] =
+                    offsets[i] + (members.get(i) instanceof Executable executable ? executable.getParameterCount() : 1);
+        }
+        return (target, arguments) -> {
+            Object instance = create.invoke(null, slice(arguments, 0, offsets[0]));
+            for (int i = 0; i < injects.length; i++) {
+                injects[i].invoke(instance, slice(arguments, offsets[i], offsets[i + 1]));
+            }
+            return instance;
+        };
+    }
+
+    private static Object[] slice(Object[] arguments, int from, int to) {
+        return from == 0 && to == arguments.length ? arguments : Arrays.copyOfRange(arguments, from, to);
+    }
+
+    abstract Invoker constructor(Constructor<?> constructor) throws IllegalAccessException;
+
+    abstract Invoker field(Field field) throws IllegalAccessException;
+
+    abstract Invoker method(Method method) throws IllegalAccessException;
+}
@@ -0,0 +1,12 @@
+package geektime.tdd.di;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compile time index of injectable components, keyed by the binary name of the component class.
+ * Implementations are generated by the injection processor and found through {@link java.util.ServiceLoader}.
+ */
+public interface InjectionIndex {
+    Map<String, Supplier<ComponentProvider<?>>> providers();
+}
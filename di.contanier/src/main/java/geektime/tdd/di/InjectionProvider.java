@@ -1,6 +1,5 @@
 package geektime.tdd.di;
 
-import static geektime.tdd.di.InjectionProvider.Injectable.of;
 import static java.util.Arrays.stream;
 import static java.util.stream.Stream.concat;
 
@@ -17,25 +16,90 @@ import java.util.stream.Stream;
 
 class InjectionProvider<T> implements ComponentProvider<T> {
     private final Injectable<Constructor<T>> injectConstructor;
-    private Collection<Class<?>> superClasses;
-    private Map<Class<?>, List<Injectable<Method>>> injectMethods;
-    private Map<Class<?>, List<Injectable<Field>>> injectFields;
+    private List<Injectable<?>> injectMembers;
+    private List<Injectable<?>> injectStatics;
     private List<ComponentRef<?>> dependencies;
+    private final ComponentRef<?>[] required;
+    private final Invoker invoker;
+    private Slots slots;
 
     InjectionProvider(Class<T> component) {
+        this(component, InjectionEngine.METHOD_HANDLE);
+    }
+
+    InjectionProvider(Class<T> component, InjectionEngine engine) {
+        this(
+                checkConcrete(component),
+                engine,
+                getInjectConstructor(component),
+                getInjectFields(component),
+                getInjectMethods(component));
+    }
+
+    private InjectionProvider(
+            Class<T> component,
+            InjectionEngine engine,
+            Injectable<Constructor<T>> constructor,
+            List<Injectable<Field>> fields,
+            List<Injectable<Method>> methods) {
+        injectConstructor = constructor;
+        var superClasses = allSuperClass(component);
+
+        this.injectMembers = injectMembers(superClasses, groupByClass(fields), groupByClass(methods), false);
+        this.injectStatics = injectMembers(superClasses, groupByClass(fields), groupByClass(methods), true).stream()
+                .<Injectable<?>>map(injectable -> injectable.with(engine))
+                .toList();
+        this.invoker = engine.component(
+                constructor.element(),
+                injectMembers.stream().map(Injectable::element).toList());
+
+        required = concat(Stream.of(injectConstructor), injectMembers.stream())
+                .flatMap(injectable -> stream(injectable.required()))
+                .toArray(ComponentRef<?>[]::new);
+        dependencies = concat(concat(Stream.of(injectConstructor), fields.stream()), methods.stream())
+                .flatMap(injectable -> stream(injectable.required()))
+                .toList();
+    }
+
+    // injection points already chosen by an earlier scan, e.g. read back from a snapshot
+    static <T> InjectionProvider<T> from(
+            Class<T> component,
+            InjectionEngine engine,
+            Constructor<T> constructor,
+            List<Field> fields,
+            List<Method> methods) {
+        return new InjectionProvider<>(
+                checkConcrete(component),
+                engine,
+                Injectable.of(constructor),
+                fields.stream().map(Injectable::of).toList(),
+                methods.stream().map(Injectable::of).toList());
+    }
+
+    private static <T> Class<T> checkConcrete(Class<T> component) {
         if (Modifier.isAbstract(component.getModifiers())) {
             throw ComponentError.abstractComponent(component);
         }
-        injectConstructor = getInjectConstructor(component);
-        superClasses = allSuperClass(component);
-        var injectFields = getInjectFields(component);
-        var injectMethods = getInjectMethods(component);
+        return component;
+    }
+
+    Constructor<T> constructor() {
+        return injectConstructor.element();
+    }
 
-        this.injectMethods = groupByClass(injectMethods);
-        this.injectFields = groupByClass(injectFields);
+    List<Field> fields() {
+        return members(Field.class);
+    }
 
-        dependencies = concat(concat(Stream.of(injectConstructor), injectFields.stream()), injectMethods.stream())
-                .flatMap(injectable -> stream(injectable.required()))
+    List<Method> methods() {
+        return members(Method.class);
+    }
+
+    private <E> List<E> members(Class<E> type) {
+        return concat(injectStatics.stream(), injectMembers.stream())
+                .map(Injectable::element)
+                .filter(type::isInstance)
+                .map(type::cast)
                 .toList();
     }
 
@@ -52,9 +116,17 @@ class InjectionProvider<T> implements ComponentProvider<T> {
         return result;
     }
 
-    record Injectable<Element extends AccessibleObject>(Element element, ComponentRef<?>[] required) {
+    record Injectable<Element extends AccessibleObject>(Element element, ComponentRef<?>[] required, Invoker invoker) {
         public Object[] toDependencies(Context context) {
-            return stream(required).map(context::get).map(Optional::get).toArray();
+            return context.require(required);
+        }
+
+        Object inject(Object target, Context context) throws ReflectiveOperationException {
+            return invoker.invoke(target, toDependencies(context));
+        }
+
+        Injectable<Element> with(InjectionEngine engine) {
+            return new Injectable<>(element, required, engine.invoker(element));
         }
 
         static <Element extends Executable> Injectable<Element> of(Element element) {
@@ -63,12 +135,14 @@ class InjectionProvider<T> implements ComponentProvider<T> {
                     element,
                     stream(element.getParameters())
                             .map(Injectable::toComponentRef)
-                            .toArray(ComponentRef<?>[]::new));
+                            .toArray(ComponentRef<?>[]::new),
+                    InjectionEngine.REFLECTION.invoker(element));
         }
 
         static Injectable<Field> of(Field field) {
             field.setAccessible(true);
-            return new Injectable<>(field, new ComponentRef<?>[] {toComponentRef(field)});
+            return new Injectable<>(
+                    field, new ComponentRef<?>[] {toComponentRef(field)}, InjectionEngine.REFLECTION.invoker(field));
         }
 
         private static ComponentRef<?> toComponentRef(Parameter parameter) {
@@ -90,35 +164,45 @@ class InjectionProvider<T> implements ComponentProvider<T> {
         }
     }
 
+    // injection points resolved to the slots of the context compiled last; other contexts look their refs up
+    private record Slots(CompiledContext context, int[] required) {}
+
+    void link(CompiledContext context) {
+        slots = new Slots(context, context.slots(required));
+    }
+
     @Override
     public T get(Context context) {
+        Slots slots = this.slots;
         try {
-            T instance = this.injectConstructor.element().newInstance(injectConstructor.toDependencies(context));
-            injectMembers(context, instance, false);
-            return instance;
-        } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            return (T) invoker.invoke(
+                    null,
+                    slots != null && slots.context() == context
+                            ? slots.context().require(required, slots.required())
+                            : context.require(required));
+        } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void injectMembers(Context context, T instance, boolean statics)
-            throws IllegalAccessException, InvocationTargetException {
+    private static List<Injectable<?>> injectMembers(
+            Collection<Class<?>> superClasses,
+            Map<Class<?>, List<Injectable<Field>>> injectFields,
+            Map<Class<?>, List<Injectable<Method>>> injectMethods,
+            boolean statics) {
+        List<Injectable<?>> result = new ArrayList<>();
         for (final Class<?> superClass : superClasses) {
-            for (Injectable<Field> injectField : injectMembers(superClass, injectFields, f -> statics == isStatic(f))) {
-                injectField.element().set(instance, injectField.toDependencies(context)[0]);
-            }
-            for (Injectable<Method> injectMethod :
-                    injectMembers(superClass, injectMethods, f -> statics == isStatic(f))) {
-                injectMethod.element().invoke(instance, injectMethod.toDependencies(context));
-            }
+            result.addAll(injectMembers(superClass, injectFields, f -> statics == isStatic(f)));
+            result.addAll(injectMembers(superClass, injectMethods, f -> statics == isStatic(f)));
         }
+        return result;
     }
 
-    private <E extends AccessibleObject> boolean isStatic(Injectable<E> f) {
+    private static <E extends AccessibleObject> boolean isStatic(Injectable<E> f) {
         return Modifier.isStatic(((Member) f.element()).getModifiers());
     }
 
-    private <E extends AccessibleObject> List<Injectable<E>> injectMembers(
+    private static <E extends AccessibleObject> List<Injectable<E>> injectMembers(
             Class<?> superClass, Map<Class<?>, List<Injectable<E>>> members, Predicate<Injectable<E>> predicate) {
         return members.getOrDefault(superClass, List.of()).stream()
                 .filter(predicate)
@@ -128,8 +212,10 @@ class InjectionProvider<T> implements ComponentProvider<T> {
     @Override
     public void statics(Context context) {
         try {
-            injectMembers(context, null, true);
-        } catch (IllegalAccessException | InvocationTargetException e) {
+            for (Injectable<?> injectStatic : injectStatics) {
+                injectStatic.inject(null, context);
+            }
+        } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e);
         }
     }
@@ -140,14 +226,26 @@ class InjectionProvider<T> implements ComponentProvider<T> {
     }
 
     private static List<Injectable<Method>> getInjectMethods(Class<?> component) {
-        List<Injectable<Method>> injectables = InjectionProvider.<Method>traverse(
-                        component, (injectMethods1, current) -> injectable(current.getDeclaredMethods())
-                                .filter(m -> isOverrideByInjectMethod(injectMethods1, m))
-                                .filter(m -> isOverrideByNoInjectMethod(component, m))
-                                .toList())
-                .stream()
-                .map(Injectable::of)
-                .toList();
+        Metadata leaf = Metadata.of(component);
+        Map<Signature, List<Method>> overriding = new HashMap<>();
+        List<Injectable<Method>> injectables = new ArrayList<>();
+        for (Class<?> current = component; current != Object.class; current = current.getSuperclass()) {
+            List<Injectable<Method>> level = new ArrayList<>();
+            for (Injectable<Method> injectable : Metadata.of(current).methods) {
+                Method method = injectable.element();
+                Signature signature = Signature.of(method);
+                if (isOverrideBy(overriding.get(signature), method)
+                        || isOverrideBy(leaf.plain.get(signature), method)) {
+                    continue;
+                }
+                level.add(injectable);
+            }
+            level.forEach(injectable -> overriding
+                    .computeIfAbsent(Signature.of(injectable.element()), k -> new ArrayList<>())
+                    .add(injectable.element()));
+            injectables.addAll(level);
+        }
+        Collections.reverse(injectables);
 
         return check(
                 component,
@@ -157,22 +255,17 @@ class InjectionProvider<T> implements ComponentProvider<T> {
     }
 
     private static List<Injectable<Field>> getInjectFields(Class<?> component) {
-        List<Injectable<Field>> injectables = InjectionProvider.<Field>traverse(
-                        component, (fields, current) -> injectable(current.getDeclaredFields())
-                                .toList())
-                .stream()
-                .map(Injectable::of)
-                .toList();
+        List<Injectable<Field>> injectables = new ArrayList<>();
+        for (Class<?> current = component; current != Object.class; current = current.getSuperclass()) {
+            injectables.addAll(Metadata.of(current).fields);
+        }
+        Collections.reverse(injectables);
         return check(component, injectables, InjectionProvider::isFinal, ComponentError::finalInjectFields);
     }
 
     private static <T> Injectable<Constructor<T>> getInjectConstructor(Class<T> component) {
-        List<Constructor<?>> injectConstructors =
-                injectable(component.getDeclaredConstructors()).toList();
-        if (injectConstructors.size() > 1) {
-            throw ComponentError.ambiguousInjectableConstructors(component);
-        }
-        return of(defaultConstructor(component, injectConstructors));
+        return (Injectable<Constructor<T>>)
+                (Injectable<?>) Metadata.of(component).constructor();
     }
 
     private static <Type> Constructor<Type> defaultConstructor(
@@ -205,26 +298,60 @@ class InjectionProvider<T> implements ComponentProvider<T> {
                 && Arrays.equals(other.getParameterTypes(), method.getParameterTypes());
     }
 
-    private static boolean isOverrideByNoInjectMethod(final Class<?> component, final Method method) {
-        return stream(component.getDeclaredMethods())
-                .filter(m -> !m.isAnnotationPresent(Inject.class))
-                .noneMatch(o -> isOverride(o, method));
+    // candidates share the method's signature, so only visibility is left to check
+    private static boolean isOverrideBy(final List<Method> candidates, final Method method) {
+        return candidates != null && candidates.stream().anyMatch(o -> isOverride(o, method));
     }
 
-    private static boolean isOverrideByInjectMethod(final ArrayList<Method> injectMethods, final Method method) {
-        return injectMethods.stream().noneMatch(o -> isOverride(o, method));
+    record Signature(String name, List<Class<?>> parameters) {
+        static Signature of(Method method) {
+            return new Signature(method.getName(), List.of(method.getParameterTypes()));
+        }
     }
 
-    private static <T> ArrayList<T> traverse(
-            final Class<?> component, final BiFunction<ArrayList<T>, Class<?>, List<T>> function) {
-        ArrayList<T> injectMethods = new ArrayList<>();
-        Class<?> current = component;
-        while (current != Object.class) {
-            injectMethods.addAll(function.apply(injectMethods, current));
-            current = current.getSuperclass();
+    // reflective scan of a single class, shared by every provider whose hierarchy contains it
+    static final class Metadata {
+        private static final ClassValue<Metadata> CACHE = new ClassValue<>() {
+            @Override
+            protected Metadata computeValue(Class<?> type) {
+                return new Metadata(type);
+            }
+        };
+
+        private final Class<?> type;
+        private final List<Injectable<Field>> fields;
+        private final List<Injectable<Method>> methods;
+        private final Map<Signature, List<Method>> plain;
+        private volatile Injectable<? extends Constructor<?>> constructor;
+
+        private Metadata(Class<?> type) {
+            this.type = type;
+            Method[] declared = type.getDeclaredMethods();
+            fields = injectable(type.getDeclaredFields()).map(Injectable::of).toList();
+            methods = injectable(declared).map(Injectable::of).toList();
+            plain = stream(declared)
+                    .filter(m -> !m.isAnnotationPresent(Inject.class))
+                    .collect(Collectors.groupingBy(Signature::of));
+        }
+
+        static Metadata of(Class<?> type) {
+            return CACHE.get(type);
+        }
+
+        // only concrete components need a constructor, so it is resolved on first use
+        Injectable<? extends Constructor<?>> constructor() {
+            Injectable<? extends Constructor<?>> resolved = constructor;
+            if (resolved == null) {
+                List<Constructor<?>> injectConstructors =
+                        injectable(type.getDeclaredConstructors()).toList();
+                if (injectConstructors.size() > 1) {
+                    throw ComponentError.ambiguousInjectableConstructors(type);
+                }
+                resolved = Injectable.of(InjectionProvider.<Object>defaultConstructor(type, injectConstructors));
+                constructor = resolved;
+            }
+            return resolved;
         }
-        Collections.reverse(injectMethods);
-        return injectMethods;
     }
 
     private static <E extends AccessibleObject> List<Injectable<E>> check(
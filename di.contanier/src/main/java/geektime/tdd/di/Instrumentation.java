@@ -0,0 +1,11 @@
+package geektime.tdd.di;
+
+public interface Instrumentation {
+    /** Time spent in the component's own construction and member injection, excluding its dependencies. */
+    void constructed(Component component, long nanos);
+
+    /** Time taken to create a singleton for the first time, including its dependencies. */
+    default void initialized(Component component, long nanos) {}
+
+    default void statics(Component component, long nanos) {}
+}
@@ -0,0 +1,54 @@
+package geektime.tdd.di;
+
+import java.util.List;
+
+class InstrumentedProvider<T> implements ComponentProvider<T> {
+    // inclusive time of the dependencies created by the provider currently running on this thread
+    private static final ThreadLocal<long[]> NESTED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Component component;
+    private final ComponentProvider<T> provider;
+    private final Instrumentation instrumentation;
+    private final boolean singleton;
+
+    InstrumentedProvider(
+            Component component, ComponentProvider<T> provider, Instrumentation instrumentation, boolean singleton) {
+        this.component = component;
+        this.provider = provider;
+        this.instrumentation = instrumentation;
+        this.singleton = singleton;
+    }
+
+    @Override
+    public T get(Context context) {
+        long[] nested = NESTED.get();
+        long outer = nested[0];
+        nested[0] = 0;
+        long start = System.nanoTime();
+        try {
+            return provider.get(context);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            instrumentation.constructed(component, elapsed - nested[0]);
+            if (singleton) {
+                instrumentation.initialized(component, elapsed);
+            }
+            nested[0] = outer + elapsed;
+        }
+    }
+
+    @Override
+    public void statics(Context context) {
+        long start = System.nanoTime();
+        try {
+            provider.statics(context);
+        } finally {
+            instrumentation.statics(component, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return provider.getDependencies();
+    }
+}
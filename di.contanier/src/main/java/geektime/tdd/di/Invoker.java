@@ -0,0 +1,5 @@
+package geektime.tdd.di;
+
+public interface Invoker {
+    Object invoke(Object target, Object[] arguments) throws ReflectiveOperationException;
+}
@@ -0,0 +1,441 @@
+package geektime.tdd.di;
+
+import static java.lang.invoke.MethodHandles.privateLookupIn;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emits a hidden class nestmate of a component, so the generated {@link Invoker} calls the constructor, assigns the
+ * fields and invokes the methods directly. The invoker of a single injection point is a nestmate of the class
+ * declaring it; the invoker of a whole component creates it and injects its instance members in one body, reading the
+ * arguments of each injection point from one array, one point after the other.
+ */
+class InvokerGenerator {
+    private static final ClassValue<Map<List<Member>, Invoker>> INVOKERS = new ClassValue<>() {
+        @Override
+        protected Map<List<Member>, Invoker> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final String INVOKER = Invoker.class.getName().replace('.', '/');
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String INVOCATION_TARGET_EXCEPTION =
+            InvocationTargetException.class.getName().replace('.', '/');
+
+    private static final int CLASS_VERSION = 61;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int SIPUSH = 0x11;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int AALOAD = 0x32;
+    private static final int ASTORE_3 = 0x4e;
+    private static final int POP = 0x57;
+    private static final int POP2 = 0x58;
+    private static final int DUP = 0x59;
+    private static final int DUP_X1 = 0x5a;
+    private static final int SWAP = 0x5f;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int PUTSTATIC = 0xb3;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int ATHROW = 0xbf;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final int SAME_LOCALS_1_STACK_ITEM_EXTENDED = 247;
+    private static final int ITEM_OBJECT = 7;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final Class<?> host;
+    private final List<Member> members;
+    private final Lookup lookup;
+    private final ConstantPool pool = new ConstantPool();
+    private final Code code = new Code();
+
+    private InvokerGenerator(Class<?> host, List<Member> members) throws IllegalAccessException {
+        this.host = host;
+        this.members = members;
+        this.lookup = privateLookupIn(host, MethodHandles.lookup());
+    }
+
+    static Invoker point(Member member) throws IllegalAccessException {
+        return of(member.getDeclaringClass(), List.of(member));
+    }
+
+    static Invoker component(Constructor<?> constructor, List<? extends Member> members) throws IllegalAccessException {
+        List<Member> all = new ArrayList<>(List.of(constructor));
+        all.addAll(members);
+        return of(constructor.getDeclaringClass(), List.copyOf(all));
+    }
+
+    private static Invoker of(Class<?> host, List<Member> members) throws IllegalAccessException {
+        Map<List<Member>, Invoker> invokers = INVOKERS.get(host);
+        Invoker invoker = invokers.get(members);
+        if (invoker == null) {
+            invoker = new InvokerGenerator(host, members).generate();
+            Invoker raced = invokers.putIfAbsent(members, invoker);
+            invoker = raced != null ? raced : invoker;
+        }
+        return invoker;
+    }
+
+    private Invoker generate() throws IllegalAccessException {
+        for (Member member : members) {
+            if (!accessible(member)) {
+                throw new IllegalAccessException(member + " is not accessible from a nestmate of " + host);
+            }
+        }
+        for (Class<?> type : types()) {
+            lookup.accessClass(type);
+        }
+        try {
+            Lookup hidden = lookup.defineHiddenClass(bytes(), true, Lookup.ClassOption.NESTMATE);
+            return (Invoker) hidden.findConstructor(hidden.lookupClass(), methodType(void.class))
+                    .invoke();
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Throwable e) {
+            IllegalAccessException exception = new IllegalAccessException(e.getMessage());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    // nestmates share private access, but protected members of another package stay out of reach of a class that
+    // does not extend their owner
+    private boolean accessible(Member member) {
+        Class<?> owner = member.getDeclaringClass();
+        if (owner.isNestmateOf(host)) {
+            return true;
+        }
+        if (owner.getClassLoader() == host.getClassLoader()
+                && owner.getPackageName().equals(host.getPackageName())) {
+            return !Modifier.isPrivate(member.getModifiers());
+        }
+        return Modifier.isPublic(member.getModifiers()) && Modifier.isPublic(owner.getModifiers());
+    }
+
+    private List<Class<?>> types() {
+        List<Class<?>> types = new ArrayList<>(List.of(host));
+        for (Member member : members) {
+            types.add(member.getDeclaringClass());
+            if (member instanceof Executable executable) {
+                types.addAll(List.of(executable.getParameterTypes()));
+            }
+            if (member instanceof Field field) {
+                types.add(field.getType());
+            }
+        }
+        return types;
+    }
+
+    private byte[] bytes() {
+        String name = internalName(host) + "$$Invoker";
+        int thisClass = pool.type(name);
+        int superClass = pool.type("java/lang/Object");
+        int invoker = pool.type(INVOKER);
+        byte[] init = constructor(superClass);
+        byte[] invoke = invoke();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            pool.write(out);
+            out.writeShort(Modifier.PUBLIC | Modifier.FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(invoker);
+            out.writeShort(0);
+            out.writeShort(2);
+            out.write(init);
+            out.write(invoke);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] constructor(int superClass) {
+        Code init = new Code();
+        init.u1(ALOAD_0);
+        init.u1(INVOKESPECIAL).u2(pool.method(superClass, "<init>", "()V"));
+        init.u1(RETURN);
+        return method("<init>", "()V", init, 1, 1, null, null);
+    }
+
+    private byte[] invoke() {
+        int stack = 0;
+        int offset = 0;
+        boolean component = members.get(0) instanceof Constructor<?> && members.size() > 1;
+        for (Member member : members) {
+            int slots = inject(member, component, offset);
+            stack = Math.max(stack, slots);
+            offset += parameters(member).length;
+        }
+        if (component) {
+            code.u1(ALOAD_3).u1(ARETURN);
+        }
+        int handler = code.size();
+        int exception = pool.type(INVOCATION_TARGET_EXCEPTION);
+        code.u1(NEW).u2(exception);
+        code.u1(DUP_X1);
+        code.u1(SWAP);
+        code.u1(INVOKESPECIAL).u2(pool.method(exception, "<init>", "(Ljava/lang/Throwable;)V"));
+        code.u1(ATHROW);
+
+        Code exceptions = new Code();
+        exceptions.u2(0).u2(handler).u2(handler).u2(0);
+        Code frames = new Code();
+        frames.u2(1);
+        frames.u1(SAME_LOCALS_1_STACK_ITEM_EXTENDED).u2(handler).u1(ITEM_OBJECT).u2(pool.type("java/lang/Throwable"));
+        return method("invoke", INVOKE_DESCRIPTOR, code, 4 + stack, component ? 4 : 3, exceptions, frames);
+    }
+
+    // a component keeps the instance it created in local 3 as the target of its members, a single point returns
+    private int inject(Member member, boolean component, int offset) {
+        if (member instanceof Constructor<?> constructor) {
+            int type = pool.type(internalName(constructor.getDeclaringClass()));
+            code.u1(NEW).u2(type);
+            code.u1(DUP);
+            int slots = arguments(offset, constructor.getParameterTypes());
+            code.u1(INVOKESPECIAL)
+                    .u2(pool.method(type, "<init>", descriptor(constructor.getParameterTypes(), void.class)));
+            code.u1(component ? ASTORE_3 : ARETURN);
+            return slots;
+        }
+        boolean statics = Modifier.isStatic(member.getModifiers());
+        int owner = target(member, statics, component);
+        if (member instanceof Field field) {
+            int slots = arguments(offset, field.getType());
+            code.u1(statics ? PUTSTATIC : PUTFIELD).u2(pool.field(owner, field.getName(), descriptor(field.getType())));
+            if (!component) {
+                code.u1(ACONST_NULL).u1(ARETURN);
+            }
+            return slots;
+        }
+        Method method = (Method) member;
+        int slots = arguments(offset, method.getParameterTypes());
+        code.u1(statics ? INVOKESTATIC : INVOKEVIRTUAL)
+                .u2(pool.method(
+                        owner, method.getName(), descriptor(method.getParameterTypes(), method.getReturnType())));
+        if (method.getReturnType() == long.class || method.getReturnType() == double.class) {
+            code.u1(POP2);
+        } else if (method.getReturnType() != void.class) {
+            code.u1(POP);
+        }
+        if (!component) {
+            code.u1(ACONST_NULL).u1(ARETURN);
+        }
+        return slots;
+    }
+
+    private int target(Member member, boolean statics, boolean component) {
+        int owner = pool.type(internalName(member.getDeclaringClass()));
+        if (!statics) {
+            code.u1(component ? ALOAD_3 : ALOAD_1);
+            if (!component) {
+                code.u1(CHECKCAST).u2(owner);
+            }
+        }
+        return owner;
+    }
+
+    private int arguments(int offset, Class<?>... types) {
+        int slots = 0;
+        for (int i = 0; i < types.length; i++) {
+            code.u1(ALOAD_2);
+            code.u1(SIPUSH).u2(offset + i);
+            code.u1(AALOAD);
+            cast(types[i]);
+            slots += types[i] == long.class || types[i] == double.class ? 2 : 1;
+        }
+        return slots;
+    }
+
+    private static Class<?>[] parameters(Member member) {
+        return member instanceof Executable executable
+                ? executable.getParameterTypes()
+                : new Class<?>[] {((Field) member).getType()};
+    }
+
+    private void cast(Class<?> type) {
+        if (type.isPrimitive()) {
+            int boxType = pool.type(internalName(methodType(type).wrap().returnType()));
+            code.u1(CHECKCAST).u2(boxType);
+            code.u1(INVOKEVIRTUAL).u2(pool.method(boxType, type.getName() + "Value", "()" + descriptor(type)));
+        } else if (type != Object.class) {
+            code.u1(CHECKCAST).u2(pool.type(type.isArray() ? descriptor(type) : internalName(type)));
+        }
+    }
+
+    private byte[] method(
+            String name, String descriptor, Code code, int stack, int locals, Code exceptions, Code frames) {
+        int stackMapTable = frames == null ? 0 : pool.utf8("StackMapTable");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(Modifier.PUBLIC);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(pool.utf8("Code"));
+            int exceptionTable = exceptions == null ? 0 : exceptions.size();
+            int attributes = frames == null ? 0 : 6 + frames.size();
+            out.writeInt(12 + code.size() + exceptionTable + attributes);
+            out.writeShort(stack);
+            out.writeShort(locals);
+            out.writeInt(code.size());
+            code.writeTo(out);
+            out.writeShort(exceptions == null ? 0 : 1);
+            if (exceptions != null) {
+                exceptions.writeTo(out);
+            }
+            out.writeShort(frames == null ? 0 : 1);
+            if (frames != null) {
+                out.writeShort(stackMapTable);
+                out.writeInt(frames.size());
+                frames.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        return type.descriptorString();
+    }
+
+    private static String descriptor(Class<?>[] parameters, Class<?> returnType) {
+        return methodType(returnType, parameters).descriptorString();
+    }
+
+    private static class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code u1(int value) {
+            bytes.write(value);
+            return this;
+        }
+
+        Code u2(int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+            return this;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, () -> {
+                out.writeByte(CONSTANT_UTF8);
+                out.writeUTF(value);
+            });
+        }
+
+        int type(String name) {
+            int utf8 = utf8(name);
+            return entry("C" + name, () -> {
+                out.writeByte(CONSTANT_CLASS);
+                out.writeShort(utf8);
+            });
+        }
+
+        int method(int owner, String name, String descriptor) {
+            return reference(CONSTANT_METHODREF, owner, name, descriptor);
+        }
+
+        int field(int owner, String name, String descriptor) {
+            return reference(CONSTANT_FIELDREF, owner, name, descriptor);
+        }
+
+        private int reference(int tag, int owner, String name, String descriptor) {
+            int utf8Name = utf8(name);
+            int utf8Descriptor = utf8(descriptor);
+            int nameAndType = entry("N" + name + descriptor, () -> {
+                out.writeByte(CONSTANT_NAME_AND_TYPE);
+                out.writeShort(utf8Name);
+                out.writeShort(utf8Descriptor);
+            });
+            return entry(tag + ":" + owner + "." + name + descriptor, () -> {
+                out.writeByte(tag);
+                out.writeShort(owner);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        private int entry(String key, Entry entry) {
+            Integer index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                entry.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entries.put(key, count);
+            return count++;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+
+        private interface Entry {
+            void write() throws IOException;
+        }
+    }
+}
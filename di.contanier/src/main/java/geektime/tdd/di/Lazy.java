@@ -0,0 +1,9 @@
+package geektime.tdd.di;
+
+/**
+ * Defers creating a dependency until {@link #get()} is first called, then keeps returning the same instance.
+ * Like {@code Provider}, injecting a {@code Lazy} does not create a dependency cycle.
+ */
+public interface Lazy<T> {
+    T get();
+}
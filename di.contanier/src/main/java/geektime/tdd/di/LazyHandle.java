@@ -0,0 +1,28 @@
+package geektime.tdd.di;
+
+import jakarta.inject.Provider;
+
+class LazyHandle<T> implements Lazy<T> {
+    private Provider<T> provider;
+    private volatile T instance;
+
+    LazyHandle(Provider<T> provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public T get() {
+        T created = instance;
+        if (created == null) {
+            synchronized (this) {
+                created = instance;
+                if (created == null) {
+                    created = provider.get();
+                    instance = created;
+                    provider = null;
+                }
+            }
+        }
+        return created;
+    }
+}
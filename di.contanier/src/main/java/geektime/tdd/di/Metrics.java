@@ -0,0 +1,59 @@
+package geektime.tdd.di;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+public class Metrics implements Instrumentation {
+    private final Map<Component, Recorder> recorders = new ConcurrentHashMap<>();
+
+    @Override
+    public void constructed(Component component, long nanos) {
+        Recorder recorder = recorder(component);
+        recorder.created.increment();
+        recorder.construction.add(nanos);
+        recorder.maxConstruction.accumulate(nanos);
+    }
+
+    @Override
+    public void initialized(Component component, long nanos) {
+        recorder(component).singleton.add(nanos);
+    }
+
+    @Override
+    public void statics(Component component, long nanos) {
+        recorder(component).statics.add(nanos);
+    }
+
+    public Map<Component, Counters> snapshot() {
+        return recorders.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue()
+                .counters()));
+    }
+
+    public void reset() {
+        recorders.clear();
+    }
+
+    private Recorder recorder(Component component) {
+        Recorder recorder = recorders.get(component);
+        return recorder != null ? recorder : recorders.computeIfAbsent(component, c -> new Recorder());
+    }
+
+    public record Counters(
+            long created, long constructionNanos, long maxConstructionNanos, long singletonNanos, long staticsNanos) {}
+
+    private static class Recorder {
+        private final LongAdder created = new LongAdder();
+        private final LongAdder construction = new LongAdder();
+        private final LongAccumulator maxConstruction = new LongAccumulator(Math::max, 0);
+        private final LongAdder singleton = new LongAdder();
+        private final LongAdder statics = new LongAdder();
+
+        Counters counters() {
+            return new Counters(
+                    created.sum(), construction.sum(), maxConstruction.get(), singleton.sum(), statics.sum());
+        }
+    }
+}
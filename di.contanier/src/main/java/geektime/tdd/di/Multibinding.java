@@ -0,0 +1,82 @@
+package geektime.tdd.di;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class Multibinding implements ComponentProvider<Object> {
+    private final Component component;
+    private final List<String> keys = new ArrayList<>();
+    private final List<ComponentProvider<?>> elements = new ArrayList<>();
+    private boolean constant = true;
+    private int prototypes;
+    private List<ComponentRef<?>> dependencies = List.of();
+    private volatile Object collection;
+
+    Multibinding(Component component) {
+        this.component = component;
+    }
+
+    void add(String key, ComponentProvider<?> element, boolean constant) {
+        if (key != null && keys.contains(key)) {
+            throw ContextConfigException.duplicatedKey(component, key);
+        }
+        keys.add(key);
+        elements.add(element);
+        boolean shared = constant || element instanceof SingletonProvider<?>;
+        this.constant &= shared;
+        this.prototypes += shared ? 0 : 1;
+        this.collection = null;
+        List<ComponentRef<?>> dependencies = new ArrayList<>(this.dependencies);
+        dependencies.addAll(element.getDependencies());
+        this.dependencies = List.copyOf(dependencies);
+    }
+
+    Component component() {
+        return component;
+    }
+
+    // elements created again whenever the collection is built
+    int prototypes() {
+        return prototypes;
+    }
+
+    // all elements are singletons or instances, so the collection never changes once built
+    boolean isConstant() {
+        return constant;
+    }
+
+    @Override
+    public Object get(Context context) {
+        Object built = collection;
+        if (built != null) {
+            return built;
+        }
+        built = build(context);
+        if (constant) {
+            collection = built;
+        }
+        return built;
+    }
+
+    private Object build(Context context) {
+        if (component.collection() == Map.class) {
+            Map.Entry<?, ?>[] entries = new Map.Entry<?, ?>[elements.size()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = Map.entry(keys.get(i), elements.get(i).get(context));
+            }
+            return Map.ofEntries(entries);
+        }
+        Object[] values = new Object[elements.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = elements.get(i).get(context);
+        }
+        return Set.copyOf(List.of(values));
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return dependencies;
+    }
+}
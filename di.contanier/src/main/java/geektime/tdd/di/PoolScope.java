@@ -0,0 +1,178 @@
+package geektime.tdd.di;
+
+import jakarta.inject.Provider;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+public class PoolScope implements ScopeProvider {
+    private static final VarHandle RELEASED;
+
+    static {
+        try {
+            RELEASED = MethodHandles.lookup().findVarHandle(Lease.class, "released", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int capacity;
+    private final List<Reset<?>> resets = new CopyOnWriteArrayList<>();
+    // the lease being filled on this thread; only the pool that answers it can take the instance back
+    private final ThreadLocal<Lease<?>> pending = new ThreadLocal<>();
+
+    public PoolScope() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PoolScope(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    // runs on every released instance of the type before it goes back to its pool
+    public <T> void onRelease(Class<T> type, Consumer<? super T> reset) {
+        resets.add(new Reset<>(type, reset));
+    }
+
+    public <T> Lease<T> lease(Provider<T> provider) {
+        Lease<T> lease = new Lease<>();
+        Lease<?> outer = pending.get();
+        pending.set(lease);
+        T instance;
+        try {
+            instance = provider.get();
+        } finally {
+            pending.set(outer);
+        }
+        if (lease.pool == null || lease.instance != instance) {
+            throw new IllegalArgumentException("Not a provider of a pooled component: " + provider);
+        }
+        return lease;
+    }
+
+    @Override
+    public ComponentProvider<?> create(ComponentProvider<?> provider) {
+        return new Pool<>(provider);
+    }
+
+    @Override
+    public Lifetime lifetime() {
+        return Lifetime.POOLED;
+    }
+
+    public class Lease<T> implements AutoCloseable {
+        private Pool<T> pool;
+        private T instance;
+        private volatile boolean released;
+
+        private Lease() {}
+
+        public T get() {
+            if (released) {
+                throw new IllegalStateException("Lease already released");
+            }
+            return instance;
+        }
+
+        public void release() {
+            if (!RELEASED.compareAndSet(this, false, true)) {
+                throw new IllegalStateException("Lease already released");
+            }
+            pool.release(instance);
+        }
+
+        @Override
+        public void close() {
+            if (RELEASED.compareAndSet(this, false, true)) {
+                pool.release(instance);
+            }
+        }
+    }
+
+    private record Reset<T>(Class<T> type, Consumer<? super T> hook) {
+        void apply(Object instance) {
+            if (type.isInstance(instance)) {
+                hook.accept(type.cast(instance));
+            }
+        }
+    }
+
+    // idle instances sit in a fixed array of slots claimed by CAS, so neither side ever takes a lock
+    private class Pool<T> implements ComponentProvider<T> {
+        private final ComponentProvider<T> provider;
+        private final AtomicReferenceArray<T> idle = new AtomicReferenceArray<>(capacity);
+
+        Pool(ComponentProvider<T> provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public T get(Context context) {
+            Lease<T> lease = (Lease<T>) pending.get();
+            if (lease != null) {
+                pending.set(null);
+            }
+            T instance = acquire(context);
+            if (lease != null) {
+                lease.pool = this;
+                lease.instance = instance;
+            }
+            return instance;
+        }
+
+        private T acquire(Context context) {
+            int start = start();
+            for (int i = 0; i < capacity; i++) {
+                int slot = (start + i) % capacity;
+                T instance = idle.get(slot);
+                if (instance != null && idle.compareAndSet(slot, instance, null)) {
+                    return instance;
+                }
+            }
+            return provider.get(context);
+        }
+
+        void release(T instance) {
+            try {
+                resets.forEach(reset -> reset.apply(instance));
+            } catch (RuntimeException e) {
+                discard(instance);
+                throw e;
+            }
+            int start = start();
+            for (int i = 0; i < capacity; i++) {
+                if (idle.compareAndSet((start + i) % capacity, null, instance)) {
+                    return;
+                }
+            }
+            discard(instance);
+        }
+
+        // a full pool drops the instance, closing it like the other scopes do when they end
+        private void discard(Object instance) {
+            if (instance instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        // threads start probing at different slots to spread contention
+        private int start() {
+            return (int) (Thread.currentThread().getId() % capacity);
+        }
+
+        @Override
+        public List<ComponentRef<?>> getDependencies() {
+            return provider.getDependencies();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package geektime.tdd.di;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import jakarta.inject.Scope;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+
+@Scope
+@Documented
+@Retention(RUNTIME)
+public @interface Pooled {}
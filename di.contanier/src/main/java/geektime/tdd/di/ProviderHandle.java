@@ -0,0 +1,29 @@
+package geektime.tdd.di;
+
+import jakarta.inject.Provider;
+
+class ProviderHandle<T> implements Provider<T> {
+    private final ComponentProvider<T> provider;
+    private final Context context;
+    private final boolean singleton;
+    private volatile T instance;
+
+    ProviderHandle(ComponentProvider<T> provider, Context context) {
+        this.provider = provider;
+        this.context = context;
+        this.singleton = provider instanceof SingletonProvider<?>;
+    }
+
+    @Override
+    public T get() {
+        T cached = instance;
+        if (cached != null) {
+            return cached;
+        }
+        T created = provider.get(context);
+        if (singleton) {
+            instance = created;
+        }
+        return created;
+    }
+}
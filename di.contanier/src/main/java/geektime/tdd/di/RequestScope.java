@@ -0,0 +1,49 @@
+package geektime.tdd.di;
+
+public class RequestScope implements ScopeProvider {
+    private final ThreadLocal<Request> current = new ThreadLocal<>();
+
+    public Request enter() {
+        if (current.get() != null) {
+            throw new IllegalStateException("Request scope already entered");
+        }
+        Request request = new Request();
+        current.set(request);
+        return request;
+    }
+
+    public boolean isActive() {
+        return current.get() != null;
+    }
+
+    @Override
+    public ComponentProvider<?> create(ComponentProvider<?> provider) {
+        return new ScopedProvider<>(provider, this::instances);
+    }
+
+    public class Request implements AutoCloseable {
+        private final ScopedInstances instances = new ScopedInstances();
+
+        private Request() {}
+
+        public void onExit(Runnable cleanup) {
+            instances.onExit(cleanup);
+        }
+
+        @Override
+        public void close() {
+            if (current.get() == this) {
+                current.remove();
+            }
+            instances.close();
+        }
+    }
+
+    private ScopedInstances instances() {
+        Request request = current.get();
+        if (request == null) {
+            throw new IllegalStateException("No active request scope");
+        }
+        return request.instances;
+    }
+}
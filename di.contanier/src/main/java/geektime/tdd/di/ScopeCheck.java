@@ -0,0 +1,9 @@
+package geektime.tdd.di;
+
+/** What validation does when a scoped component holds on to a shorter-lived dependency. */
+public enum ScopeCheck {
+    /** Record the widening in {@link ContextConfig#diagnostics()} and carry on. */
+    WARN,
+    /** Fail validation with a {@link ContextConfigError}. */
+    REJECT
+}
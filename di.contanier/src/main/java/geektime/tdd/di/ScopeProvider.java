@@ -2,4 +2,19 @@ package geektime.tdd.di;
 
 public interface ScopeProvider {
     ComponentProvider<?> create(ComponentProvider<?> provider);
+
+    // a component holding on to a dependency of a shorter lifetime is reported as a scope widening
+    default Lifetime lifetime() {
+        return Lifetime.TASK;
+    }
+
+    /** How long instances of a scope are kept, from shortest to longest. */
+    enum Lifetime {
+        /** One unit of work, e.g. a request or a scoped value binding. */
+        TASK,
+        THREAD,
+        /** Handed from one lease to the next, possibly on other threads. */
+        POOLED,
+        CONTAINER
+    }
 }
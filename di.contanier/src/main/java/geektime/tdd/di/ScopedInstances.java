@@ -0,0 +1,95 @@
+package geektime.tdd.di;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// locks are ReentrantLocks rather than monitors, so a virtual thread building a component does not pin its carrier
+class ScopedInstances {
+    private final Map<ComponentProvider<?>, Slot> instances = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Runnable> cleanups = new ArrayList<>();
+    private volatile boolean closed;
+
+    <T> T get(ComponentProvider<T> provider, Context context) {
+        if (closed) {
+            throw new IllegalStateException("Scope already exited");
+        }
+        return (T) instances.computeIfAbsent(provider, p -> new Slot()).get(provider, context);
+    }
+
+    void onExit(Runnable cleanup) {
+        lock.lock();
+        try {
+            cleanups.add(cleanup);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // cleanups run in reverse order, so an instance is cleaned up before the instances it depends on
+    void close() {
+        List<Runnable> pending;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending = new ArrayList<>(cleanups);
+            cleanups.clear();
+        } finally {
+            lock.unlock();
+        }
+        RuntimeException failure = null;
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            try {
+                pending.get(i).run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        instances.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // each component is built under its own lock, so unrelated components of one scope never wait on each other
+    private class Slot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Object instance;
+
+        Object get(ComponentProvider<?> provider, Context context) {
+            Object current = instance;
+            if (current != null) {
+                return current;
+            }
+            lock.lock();
+            try {
+                if (instance == null) {
+                    Object created = provider.get(context);
+                    if (created instanceof AutoCloseable closeable) {
+                        onExit(() -> {
+                            try {
+                                closeable.close();
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+                    }
+                    instance = created;
+                }
+                return instance;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package geektime.tdd.di;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// resolves a component in whatever instances the scope currently has, so each scope only says where those live
+class ScopedProvider<T> implements ComponentProvider<T> {
+    private final ComponentProvider<T> provider;
+    private final Supplier<ScopedInstances> instances;
+
+    ScopedProvider(ComponentProvider<T> provider, Supplier<ScopedInstances> instances) {
+        this.provider = provider;
+        this.instances = instances;
+    }
+
+    @Override
+    public T get(Context context) {
+        return instances.get().get(provider, context);
+    }
+
+    @Override
+    public List<ComponentRef<?>> getDependencies() {
+        return provider.getDependencies();
+    }
+}
@@ -0,0 +1,165 @@
+package geektime.tdd.di;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.Callable;
+
+public class ScopedValueScope implements ScopeProvider {
+    private final Binding binding = ScopedValueBinding.AVAILABLE ? new ScopedValueBinding() : new ThreadLocalBinding();
+
+    public void run(Runnable task) {
+        ScopedInstances instances = new ScopedInstances();
+        try {
+            binding.run(instances, task);
+        } finally {
+            instances.close();
+        }
+    }
+
+    public <T> T call(Callable<T> task) throws Exception {
+        Object[] result = new Object[1];
+        Exception[] failure = new Exception[1];
+        run(() -> {
+            try {
+                result[0] = task.call();
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return (T) result[0];
+    }
+
+    public boolean isActive() {
+        return binding.get() != null;
+    }
+
+    public void onExit(Runnable cleanup) {
+        current().onExit(cleanup);
+    }
+
+    static boolean isScopedValueAvailable() {
+        return ScopedValueBinding.AVAILABLE;
+    }
+
+    @Override
+    public ComponentProvider<?> create(ComponentProvider<?> provider) {
+        return new ScopedProvider<>(provider, this::current);
+    }
+
+    private ScopedInstances current() {
+        ScopedInstances instances = binding.get();
+        if (instances == null) {
+            throw new IllegalStateException("No active scope");
+        }
+        return instances;
+    }
+
+    private interface Binding {
+        ScopedInstances get();
+
+        void run(ScopedInstances instances, Runnable task);
+    }
+
+    // java.lang.ScopedValue is bound through method handles, so the module still compiles for Java 17
+    // and uses ScopedValue wherever the running JDK provides it
+    private static class ScopedValueBinding implements Binding {
+        static final boolean AVAILABLE;
+        private static final MethodHandle NEW_INSTANCE;
+        private static final MethodHandle WHERE;
+        private static final MethodHandle RUN;
+        private static final MethodHandle IS_BOUND;
+        private static final MethodHandle GET;
+
+        static {
+            MethodHandle newInstance = null, where = null, run = null, isBound = null, get = null;
+            try {
+                Class<?> scopedValue = Class.forName("java.lang.ScopedValue");
+                Class<?> carrier = Class.forName("java.lang.ScopedValue$Carrier");
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                newInstance = lookup.findStatic(scopedValue, "newInstance", methodType(scopedValue))
+                        .asType(methodType(Object.class));
+                where = lookup.findStatic(scopedValue, "where", methodType(carrier, scopedValue, Object.class))
+                        .asType(methodType(Object.class, Object.class, Object.class));
+                run = lookup.findVirtual(carrier, "run", methodType(void.class, Runnable.class))
+                        .asType(methodType(void.class, Object.class, Runnable.class));
+                isBound = lookup.findVirtual(scopedValue, "isBound", methodType(boolean.class))
+                        .asType(methodType(boolean.class, Object.class));
+                get = lookup.findVirtual(scopedValue, "get", methodType(Object.class))
+                        .asType(methodType(Object.class, Object.class));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                newInstance = null;
+            }
+            AVAILABLE = newInstance != null;
+            NEW_INSTANCE = newInstance;
+            WHERE = where;
+            RUN = run;
+            IS_BOUND = isBound;
+            GET = get;
+        }
+
+        private final Object key;
+
+        ScopedValueBinding() {
+            try {
+                key = (Object) NEW_INSTANCE.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public ScopedInstances get() {
+            try {
+                return (boolean) IS_BOUND.invokeExact(key) ? (ScopedInstances) (Object) GET.invokeExact(key) : null;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void run(ScopedInstances instances, Runnable task) {
+            Object carrier;
+            try {
+                carrier = (Object) WHERE.invokeExact(key, (Object) instances);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            try {
+                RUN.invokeExact(carrier, task);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class ThreadLocalBinding implements Binding {
+        private final ThreadLocal<ScopedInstances> current = new ThreadLocal<>();
+
+        @Override
+        public ScopedInstances get() {
+            return current.get();
+        }
+
+        @Override
+        public void run(ScopedInstances instances, Runnable task) {
+            ScopedInstances previous = current.get();
+            current.set(instances);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    current.remove();
+                } else {
+                    current.set(previous);
+                }
+            }
+        }
+    }
+}
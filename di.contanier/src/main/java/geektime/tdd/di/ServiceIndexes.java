@@ -0,0 +1,29 @@
+package geektime.tdd.di;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+// the indexes a class loader provides are scanned once and shared, read-only, by every config created under it;
+// a loaded index lives as long as some config still uses it, and its class loader can go once none does
+final class ServiceIndexes {
+    private static final Map<ClassLoader, WeakReference<Map<String, Supplier<ComponentProvider<?>>>>> loaded =
+            new WeakHashMap<>();
+
+    private ServiceIndexes() {}
+
+    static synchronized Map<String, Supplier<ComponentProvider<?>>> of(ClassLoader loader) {
+        WeakReference<Map<String, Supplier<ComponentProvider<?>>>> reference = loaded.get(loader);
+        Map<String, Supplier<ComponentProvider<?>>> providers = reference != null ? reference.get() : null;
+        if (providers == null) {
+            Map<String, Supplier<ComponentProvider<?>>> found = new HashMap<>();
+            ServiceLoader.load(InjectionIndex.class, loader).forEach(index -> found.putAll(index.providers()));
+            providers = Map.copyOf(found);
+            loaded.put(loader, new WeakReference<>(providers));
+        }
+        return providers;
+    }
+}
@@ -1,10 +1,23 @@
 package geektime.tdd.di;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class SingletonProvider<T> implements ComponentProvider<T> {
+    private static final VarHandle SINGLETON;
 
-    private T singleton;
+    static {
+        try {
+            SINGLETON = MethodHandles.lookup().findVarHandle(SingletonProvider.class, "singleton", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Object singleton;
     private ComponentProvider<T> provider;
 
     public SingletonProvider(ComponentProvider<T> provider) {
@@ -13,10 +26,27 @@ public class SingletonProvider<T> implements ComponentProvider<T> {
 
     @Override
     public T get(Context context) {
-        if (singleton == null) {
-            singleton = provider.get(context);
+        Object instance = SINGLETON.getAcquire(this);
+        if (instance == null) {
+            instance = create(context);
+        }
+        return (T) instance;
+    }
+
+    // locks this provider only, so building one singleton never blocks the others; a ReentrantLock rather than a
+    // monitor, so a virtual thread building it does not pin its carrier
+    private Object create(Context context) {
+        lock.lock();
+        try {
+            Object instance = singleton;
+            if (instance == null) {
+                instance = provider.get(context);
+                SINGLETON.setRelease(this, instance);
+            }
+            return instance;
+        } finally {
+            lock.unlock();
         }
-        return singleton;
     }
 
     @Override
@@ -0,0 +1,504 @@
+package geektime.tdd.di;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+// binary layout: header, checksum of the rest, fingerprint, string table, class table, qualifier table, entries,
+// topological order
+class Snapshot {
+    private static final int MAGIC = 0x47544449;
+    private static final short VERSION = 3;
+    private static final Map<String, Class<?>> PRIMITIVES = Arrays.stream(new Class<?>[] {
+                boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class
+            })
+            .collect(Collectors.toMap(Class::getName, c -> c));
+
+    record Source(Class<?> implementation, Class<? extends Annotation> scope, ComponentProvider<?> injection) {}
+
+    // implementation is null for instance bindings, constructor is null for components built by an index factory
+    record Entry(
+            Component component,
+            boolean statics,
+            int provider,
+            Class<?> implementation,
+            Class<? extends Annotation> scope,
+            Constructor<?> constructor,
+            List<Field> fields,
+            List<Method> methods) {}
+
+    private final List<Entry> entries;
+    private final List<Component> order;
+    private final Set<Component> components;
+
+    private Snapshot(List<Entry> entries, List<Component> order) {
+        this.entries = entries;
+        this.order = order;
+        this.components = entries.stream().map(Entry::component).collect(Collectors.toSet());
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    List<Component> order() {
+        return order;
+    }
+
+    Set<Component> components() {
+        return components;
+    }
+
+    static void write(Path file, List<Entry> entries, List<Component> order) throws IOException {
+        new Writer().write(file, entries, order);
+    }
+
+    static Optional<Snapshot> read(Path file, ClassLoader loader) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), loader).read();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // a damaged file surfaces as whatever the reader trips over first, bad indices and lengths included,
+            // and is treated like a stale one
+            return Optional.empty();
+        }
+    }
+
+    private static long fingerprint(List<Class<?>> classes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Class<?> type : classes) {
+            for (Class<?> current = type;
+                    current != null && current.getClassLoader() != null;
+                    current = current.getSuperclass()) {
+                digest.update(current.getName().getBytes(StandardCharsets.UTF_8));
+                if (current.isArray()) {
+                    continue;
+                }
+                try (InputStream bytes =
+                        current.getResourceAsStream("/" + current.getName().replace('.', '/') + ".class")) {
+                    if (bytes != null) {
+                        digest.update(bytes.readAllBytes());
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    private static Method[] members(Class<? extends Annotation> annotationType) {
+        Method[] members = annotationType.getDeclaredMethods();
+        Arrays.sort(members, Comparator.comparing(Method::getName));
+        for (Method member : members) {
+            member.setAccessible(true);
+        }
+        return members;
+    }
+
+    private static class Writer {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<Class<?>, Integer> classes = new LinkedHashMap<>();
+        private final Map<Annotation, Integer> qualifiers = new HashMap<>();
+        private final ByteArrayOutputStream qualifierBytes = new ByteArrayOutputStream();
+        private final DataOutputStream qualifierTable = new DataOutputStream(qualifierBytes);
+
+        void write(Path file, List<Entry> entries, List<Component> order) throws IOException {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+            Map<Component, Integer> indexes = new HashMap<>();
+            body.writeInt(entries.size());
+            for (Entry entry : entries) {
+                indexes.put(entry.component(), indexes.size());
+                body.writeInt(type(entry.component().type()));
+                body.writeInt(
+                        entry.component().qualifier() != null
+                                ? qualifier(entry.component().qualifier())
+                                : -1);
+                body.writeInt(
+                        entry.component().collection() != null
+                                ? type(entry.component().collection())
+                                : -1);
+                body.writeBoolean(entry.statics());
+                body.writeInt(entry.provider());
+                body.writeInt(entry.implementation() != null ? type(entry.implementation()) : -1);
+                body.writeInt(entry.scope() != null ? type(entry.scope()) : -1);
+                body.writeBoolean(entry.constructor() != null);
+                if (entry.constructor() != null) {
+                    types(body, entry.constructor().getParameterTypes());
+                    body.writeInt(entry.fields().size());
+                    for (Field field : entry.fields()) {
+                        body.writeInt(type(field.getDeclaringClass()));
+                        body.writeInt(string(field.getName()));
+                    }
+                    body.writeInt(entry.methods().size());
+                    for (Method method : entry.methods()) {
+                        body.writeInt(type(method.getDeclaringClass()));
+                        body.writeInt(string(method.getName()));
+                        types(body, method.getParameterTypes());
+                    }
+                }
+            }
+            body.writeInt(order.size());
+            for (Component component : order) {
+                body.writeInt(indexes.get(component));
+            }
+            for (Class<?> type : classes.keySet()) {
+                string(type.getName());
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(fingerprint(List.copyOf(classes.keySet())));
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            out.writeInt(classes.size());
+            for (Class<?> type : classes.keySet()) {
+                out.writeInt(strings.get(type.getName()));
+            }
+            out.writeInt(qualifiers.size());
+            qualifierBytes.writeTo(out);
+            bodyBytes.writeTo(out);
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes.toByteArray());
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(snapshot);
+            header.writeInt(MAGIC);
+            header.writeShort(VERSION);
+            header.writeLong(checksum.getValue());
+            bytes.writeTo(header);
+            Files.write(file, snapshot.toByteArray());
+        }
+
+        private int string(String string) {
+            return strings.computeIfAbsent(string, s -> strings.size());
+        }
+
+        private int type(Class<?> type) {
+            return classes.computeIfAbsent(type, c -> classes.size());
+        }
+
+        private void types(DataOutputStream out, Class<?>[] types) throws IOException {
+            out.writeInt(types.length);
+            for (Class<?> type : types) {
+                out.writeInt(type(type));
+            }
+        }
+
+        private int qualifier(Annotation qualifier) throws IOException {
+            Integer index = qualifiers.get(qualifier);
+            if (index != null) {
+                return index;
+            }
+            Method[] members = members(qualifier.annotationType());
+            qualifierTable.writeInt(type(qualifier.annotationType()));
+            qualifierTable.writeInt(members.length);
+            for (Method member : members) {
+                qualifierTable.writeInt(string(member.getName()));
+                try {
+                    value(qualifier, member.invoke(qualifier));
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            qualifiers.put(qualifier, qualifiers.size());
+            return qualifiers.size() - 1;
+        }
+
+        private void value(Annotation qualifier, Object value) throws IOException {
+            DataOutputStream out = qualifierTable;
+            if (value instanceof String string) {
+                out.writeByte('s');
+                out.writeInt(string(string));
+            } else if (value instanceof Integer integer) {
+                out.writeByte('i');
+                out.writeInt(integer);
+            } else if (value instanceof Long number) {
+                out.writeByte('j');
+                out.writeLong(number);
+            } else if (value instanceof Boolean bool) {
+                out.writeByte('z');
+                out.writeBoolean(bool);
+            } else if (value instanceof Byte number) {
+                out.writeByte('b');
+                out.writeByte(number);
+            } else if (value instanceof Character character) {
+                out.writeByte('c');
+                out.writeChar(character);
+            } else if (value instanceof Short number) {
+                out.writeByte('h');
+                out.writeShort(number);
+            } else if (value instanceof Float number) {
+                out.writeByte('f');
+                out.writeFloat(number);
+            } else if (value instanceof Double number) {
+                out.writeByte('d');
+                out.writeDouble(number);
+            } else if (value instanceof Class<?> type) {
+                out.writeByte('C');
+                out.writeInt(type(type));
+            } else if (value instanceof Enum<?> constant) {
+                out.writeByte('E');
+                out.writeInt(type(constant.getDeclaringClass()));
+                out.writeInt(string(constant.name()));
+            } else if (value.getClass().isArray()) {
+                out.writeByte('[');
+                out.writeInt(type(value.getClass().getComponentType()));
+                out.writeInt(Array.getLength(value));
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    value(qualifier, Array.get(value, i));
+                }
+            } else {
+                throw new IllegalStateException(MessageFormat.format("Can not snapshot qualifier: {0}", qualifier));
+            }
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private final ClassLoader loader;
+        private String[] strings;
+        private Class<?>[] classes;
+        private Annotation[] qualifiers;
+
+        Reader(ByteBuffer buffer, ClassLoader loader) {
+            this.buffer = buffer;
+            this.loader = loader;
+        }
+
+        // every element takes at least a byte, so a length beyond the rest of the file can only be damage
+        private int length() {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            return length;
+        }
+
+        Optional<Snapshot> read() throws ReflectiveOperationException {
+            if (buffer.remaining() < 22 || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                return Optional.empty();
+            }
+            // damage that still decodes would otherwise bind a graph that was never validated
+            long expected = buffer.getLong();
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+            if (checksum.getValue() != expected) {
+                return Optional.empty();
+            }
+            long fingerprint = buffer.getLong();
+            strings = new String[length()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] encoded = new byte[length()];
+                buffer.get(encoded);
+                strings[i] = new String(encoded, StandardCharsets.UTF_8);
+            }
+            classes = new Class<?>[length()];
+            for (int i = 0; i < classes.length; i++) {
+                String name = strings[buffer.getInt()];
+                Class<?> primitive = PRIMITIVES.get(name);
+                classes[i] = primitive != null ? primitive : Class.forName(name, false, loader);
+            }
+            if (fingerprint(Arrays.asList(classes)) != fingerprint) {
+                return Optional.empty();
+            }
+            qualifiers = new Annotation[length()];
+            for (int i = 0; i < qualifiers.length; i++) {
+                qualifiers[i] = qualifier();
+            }
+            List<Entry> entries = new ArrayList<>();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                entries.add(entry());
+            }
+            List<Component> order = new ArrayList<>();
+            count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                order.add(entries.get(buffer.getInt()).component());
+            }
+            return Optional.of(new Snapshot(entries, order));
+        }
+
+        private Entry entry() throws ReflectiveOperationException {
+            Class<?> type = classes[buffer.getInt()];
+            int qualifier = buffer.getInt();
+            int collection = buffer.getInt();
+            Component component = Component.of(
+                    type, qualifier >= 0 ? qualifiers[qualifier] : null, collection >= 0 ? classes[collection] : null);
+            boolean statics = buffer.get() != 0;
+            int provider = buffer.getInt();
+            int implementation = buffer.getInt();
+            int scope = buffer.getInt();
+            if (buffer.get() == 0) {
+                return new Entry(
+                        component,
+                        statics,
+                        provider,
+                        implementation >= 0 ? classes[implementation] : null,
+                        scope >= 0 ? (Class<? extends Annotation>) classes[scope] : null,
+                        null,
+                        List.of(),
+                        List.of());
+            }
+            Constructor<?> constructor = classes[implementation].getDeclaredConstructor(types());
+            List<Field> fields = new ArrayList<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                Class<?> declaring = classes[buffer.getInt()];
+                fields.add(declaring.getDeclaredField(strings[buffer.getInt()]));
+            }
+            List<Method> methods = new ArrayList<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                Class<?> declaring = classes[buffer.getInt()];
+                String name = strings[buffer.getInt()];
+                methods.add(declaring.getDeclaredMethod(name, types()));
+            }
+            return new Entry(
+                    component,
+                    statics,
+                    provider,
+                    classes[implementation],
+                    scope >= 0 ? (Class<? extends Annotation>) classes[scope] : null,
+                    constructor,
+                    fields,
+                    methods);
+        }
+
+        private Class<?>[] types() {
+            Class<?>[] types = new Class<?>[length()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = classes[buffer.getInt()];
+            }
+            return types;
+        }
+
+        private Annotation qualifier() {
+            Class<? extends Annotation> annotationType = (Class<? extends Annotation>) classes[buffer.getInt()];
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                values.put(strings[buffer.getInt()], value());
+            }
+            return annotation(annotationType, values);
+        }
+
+        private Object value() {
+            byte tag = buffer.get();
+            return switch (tag) {
+                case 's' -> strings[buffer.getInt()];
+                case 'i' -> buffer.getInt();
+                case 'j' -> buffer.getLong();
+                case 'z' -> buffer.get() != 0;
+                case 'b' -> buffer.get();
+                case 'c' -> buffer.getChar();
+                case 'h' -> buffer.getShort();
+                case 'f' -> buffer.getFloat();
+                case 'd' -> buffer.getDouble();
+                case 'C' -> classes[buffer.getInt()];
+                case 'E' -> enumConstant(classes[buffer.getInt()], strings[buffer.getInt()]);
+                case '[' -> {
+                    Class<?> componentType = classes[buffer.getInt()];
+                    Object array = Array.newInstance(componentType, length());
+                    for (int i = 0; i < Array.getLength(array); i++) {
+                        Array.set(array, i, value());
+                    }
+                    yield array;
+                }
+                default -> throw new BufferUnderflowException();
+            };
+        }
+
+        private static <E extends Enum<E>> E enumConstant(Class<?> type, String name) {
+            return Enum.valueOf((Class<E>) type, name);
+        }
+    }
+
+    // qualifier rebuilt from its member values, following the Annotation equals/hashCode contract
+    private static Annotation annotation(Class<? extends Annotation> annotationType, Map<String, Object> values) {
+        Method[] members = members(annotationType);
+        return (Annotation) Proxy.newProxyInstance(
+                annotationType.getClassLoader(), new Class<?>[] {annotationType}, (proxy, method, args) -> {
+                    if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                        if (!annotationType.isInstance(args[0])) {
+                            return false;
+                        }
+                        for (Method member : members) {
+                            if (!Objects.deepEquals(values.get(member.getName()), member.invoke(args[0]))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                    return switch (method.getName()) {
+                        case "annotationType" -> annotationType;
+                        case "hashCode" -> values.entrySet().stream()
+                                .mapToInt(e -> (127 * e.getKey().hashCode()) ^ valueHashCode(e.getValue()))
+                                .sum();
+                        case "toString" -> "@" + annotationType.getName()
+                                + values.entrySet().stream()
+                                        .map(e -> e.getKey() + "=" + valueToString(e.getValue()))
+                                        .collect(Collectors.joining(", ", "(", ")"));
+                        default -> {
+                            Object value = values.get(method.getName());
+                            yield value.getClass().isArray() ? cloneArray(value) : value;
+                        }
+                    };
+                });
+    }
+
+    private static int valueHashCode(Object value) {
+        return value.getClass().isArray() ? Arrays.deepHashCode(new Object[] {value}) - 31 : value.hashCode();
+    }
+
+    private static String valueToString(Object value) {
+        if (!value.getClass().isArray()) {
+            return String.valueOf(value);
+        }
+        String array = Arrays.deepToString(new Object[] {value});
+        return array.substring(1, array.length() - 1);
+    }
+
+    private static Object cloneArray(Object array) {
+        Object copy = Array.newInstance(array.getClass().getComponentType(), Array.getLength(array));
+        System.arraycopy(array, 0, copy, 0, Array.getLength(array));
+        return copy;
+    }
+}
@@ -0,0 +1,26 @@
+package geektime.tdd.di;
+
+public class ThreadScope implements ScopeProvider {
+    private final ThreadLocal<ScopedInstances> current = ThreadLocal.withInitial(ScopedInstances::new);
+
+    public void onExit(Runnable cleanup) {
+        current.get().onExit(cleanup);
+    }
+
+    // releases the calling thread's instances, e.g. before a pooled thread is handed back
+    public void exit() {
+        ScopedInstances instances = current.get();
+        current.remove();
+        instances.close();
+    }
+
+    @Override
+    public ComponentProvider<?> create(ComponentProvider<?> provider) {
+        return new ScopedProvider<>(provider, current::get);
+    }
+
+    @Override
+    public Lifetime lifetime() {
+        return Lifetime.THREAD;
+    }
+}
@@ -4,7 +4,9 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -13,19 +15,44 @@ import geektime.tdd.di.InjectionTest.ConstructorInjection.Injection.InjectConstr
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Named;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 @Nested
 public class ContextTest {
@@ -143,6 +170,62 @@ public class ContextTest {
             assertFalse(context.get(new ComponentRef<List<TestComponent>>() {}).isPresent());
         }
 
+        @Test
+        public void should_reuse_provider_handle_for_same_component() {
+            config.component(WithScope.NotSingleton.class, WithScope.NotSingleton.class);
+
+            for (Context context : List.of(config.getContext(), config.compile())) {
+                Provider<WithScope.NotSingleton> provider = context.get(
+                                new ComponentRef<Provider<WithScope.NotSingleton>>() {})
+                        .get();
+                assertSame(
+                        provider,
+                        context.get(new ComponentRef<Provider<WithScope.NotSingleton>>() {})
+                                .get());
+                assertNotSame(provider.get(), provider.get());
+            }
+        }
+
+        @Test
+        public void should_read_singleton_from_provider_handle_after_first_use() {
+            List<Object> calls = new ArrayList<>();
+            config.scope(
+                    Singleton.class, provider -> new SingletonProvider<Object>((ComponentProvider<Object>) provider) {
+                        @Override
+                        public Object get(Context context) {
+                            calls.add(this);
+                            return super.get(context);
+                        }
+                    });
+            config.component(WithScope.NotSingleton.class, WithScope.NotSingleton.class, new SingletonLiteral());
+
+            Provider<WithScope.NotSingleton> provider = config.getContext()
+                    .get(new ComponentRef<Provider<WithScope.NotSingleton>>() {})
+                    .get();
+
+            assertSame(provider.get(), provider.get());
+            assertEquals(1, calls.size());
+        }
+
+        @Test
+        public void should_get_component_or_null_without_optional() {
+            TestComponent instance = new TestComponent() {};
+            config.instance(TestComponent.class, instance);
+
+            Context context = config.getContext();
+
+            assertSame(instance, context.getOrNull(ComponentRef.of(TestComponent.class)));
+            assertSame(instance, context.require(ComponentRef.of(TestComponent.class)));
+            assertNull(context.getOrNull(ComponentRef.of(Dependency.class)));
+        }
+
+        @Test
+        public void should_throw_exception_if_required_component_not_found() {
+            Context context = config.getContext();
+
+            assertThrows(NoSuchElementException.class, () -> context.require(ComponentRef.of(TestComponent.class)));
+        }
+
         @Nested
         public class WithQualifier {
             @Test
@@ -300,6 +383,529 @@ public class ContextTest {
                         () -> config.component(NotSingleton.class, NotSingleton.class, new PooledLiteral()));
             }
 
+            @RepeatedTest(20)
+            public void should_construct_singleton_exactly_once_under_concurrent_access() throws Exception {
+                int threads = 16;
+                AtomicInteger constructed = new AtomicInteger();
+                SingletonProvider<NotSingleton> provider = new SingletonProvider<>(context -> {
+                    constructed.incrementAndGet();
+                    Thread.yield();
+                    return new NotSingleton();
+                });
+                Context context = config.getContext();
+                CyclicBarrier start = new CyclicBarrier(threads);
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    List<Future<NotSingleton>> instances = new ArrayList<>();
+                    for (int i = 0; i < threads; i++) {
+                        instances.add(executor.submit(() -> {
+                            start.await();
+                            return provider.get(context);
+                        }));
+                    }
+                    NotSingleton singleton = instances.get(0).get(10, TimeUnit.SECONDS);
+                    for (Future<NotSingleton> instance : instances) {
+                        assertSame(singleton, instance.get(10, TimeUnit.SECONDS));
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+                assertEquals(1, constructed.get());
+            }
+
+            @Test
+            public void should_not_block_other_singletons_while_constructing() throws Exception {
+                CountDownLatch constructing = new CountDownLatch(1);
+                CountDownLatch release = new CountDownLatch(1);
+                SingletonProvider<NotSingleton> slow = new SingletonProvider<>(context -> {
+                    constructing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return new NotSingleton();
+                });
+                SingletonProvider<NotSingleton> fast = new SingletonProvider<>(context -> new NotSingleton());
+                Context context = config.getContext();
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                try {
+                    Future<NotSingleton> pending = executor.submit(() -> slow.get(context));
+                    assertTrue(constructing.await(10, TimeUnit.SECONDS));
+
+                    assertNotNull(fast.get(context));
+
+                    release.countDown();
+                    assertSame(pending.get(10, TimeUnit.SECONDS), slow.get(context));
+                } finally {
+                    release.countDown();
+                    executor.shutdownNow();
+                }
+            }
+
+            static class Closeable implements AutoCloseable {
+                boolean closed;
+
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            }
+
+            @Nested
+            public class WithRequestScope {
+                RequestScope scope;
+
+                @BeforeEach
+                void setUp() {
+                    scope = new RequestScope();
+                    config.scope(RequestScoped.class, scope);
+                }
+
+                @RequestScoped
+                static class RequestScopedComponent {}
+
+                @Test
+                public void should_share_component_within_request() {
+                    config.component(RequestScopedComponent.class, RequestScopedComponent.class);
+                    Context context = config.getContext();
+
+                    try (RequestScope.Request request = scope.enter()) {
+                        assertSame(
+                                context.get(ComponentRef.of(RequestScopedComponent.class))
+                                        .get(),
+                                context.get(ComponentRef.of(RequestScopedComponent.class))
+                                        .get());
+                    }
+                }
+
+                @Test
+                public void should_not_share_component_across_requests() {
+                    config.component(RequestScopedComponent.class, RequestScopedComponent.class);
+                    Context context = config.getContext();
+
+                    RequestScopedComponent first;
+                    try (RequestScope.Request request = scope.enter()) {
+                        first = context.get(ComponentRef.of(RequestScopedComponent.class))
+                                .get();
+                    }
+                    try (RequestScope.Request request = scope.enter()) {
+                        assertNotSame(
+                                first,
+                                context.get(ComponentRef.of(RequestScopedComponent.class))
+                                        .get());
+                    }
+                }
+
+                @Test
+                public void should_throw_exception_if_no_active_request() {
+                    config.component(RequestScopedComponent.class, RequestScopedComponent.class);
+                    Context context = config.getContext();
+
+                    assertThrows(
+                            IllegalStateException.class,
+                            () -> context.get(ComponentRef.of(RequestScopedComponent.class)));
+                }
+
+                @Test
+                public void should_throw_exception_if_request_entered_twice() {
+                    try (RequestScope.Request request = scope.enter()) {
+                        assertThrows(IllegalStateException.class, () -> scope.enter());
+                    }
+                    assertFalse(scope.isActive());
+                }
+
+                @Test
+                public void should_close_instances_and_run_hooks_in_reverse_order_on_exit() {
+                    config.component(Closeable.class, Closeable.class, new RequestScopedLiteral());
+                    Context context = config.getContext();
+                    List<String> exited = new ArrayList<>();
+
+                    Closeable closeable;
+                    try (RequestScope.Request request = scope.enter()) {
+                        request.onExit(() -> exited.add("first"));
+                        closeable =
+                                context.get(ComponentRef.of(Closeable.class)).get();
+                        request.onExit(() -> exited.add("second"));
+                        assertFalse(closeable.closed);
+                    }
+
+                    assertTrue(closeable.closed);
+                    assertEquals(List.of("second", "first"), exited);
+                }
+
+                @Test
+                public void should_not_share_request_across_threads() throws Exception {
+                    config.component(RequestScopedComponent.class, RequestScopedComponent.class);
+                    Context context = config.getContext();
+
+                    try (RequestScope.Request request = scope.enter()) {
+                        ExecutorService executor = Executors.newSingleThreadExecutor();
+                        try {
+                            Future<Boolean> active = executor.submit(() -> scope.isActive());
+                            assertFalse(active.get(10, TimeUnit.SECONDS));
+                        } finally {
+                            executor.shutdownNow();
+                        }
+                    }
+                }
+            }
+
+            @Nested
+            public class WithScopedValueScope {
+                ScopedValueScope scope;
+
+                @BeforeEach
+                void setUp() {
+                    scope = new ScopedValueScope();
+                    config.scope(RequestScoped.class, scope);
+                    config.component(
+                            WithRequestScope.RequestScopedComponent.class,
+                            WithRequestScope.RequestScopedComponent.class);
+                }
+
+                @Test
+                public void should_use_scoped_value_if_available() {
+                    assertEquals(Runtime.version().feature() >= 21, ScopedValueScope.isScopedValueAvailable());
+                }
+
+                @Test
+                public void should_share_component_within_scope() throws Exception {
+                    Context context = config.getContext();
+
+                    scope.run(() -> assertSame(
+                            context.get(ComponentRef.of(WithRequestScope.RequestScopedComponent.class))
+                                    .get(),
+                            context.get(ComponentRef.of(WithRequestScope.RequestScopedComponent.class))
+                                    .get()));
+                }
+
+                @Test
+                public void should_not_share_component_across_scopes() throws Exception {
+                    Context context = config.getContext();
+
+                    Object first =
+                            scope.call(() -> context.get(ComponentRef.of(WithRequestScope.RequestScopedComponent.class))
+                                    .get());
+                    Object second =
+                            scope.call(() -> context.get(ComponentRef.of(WithRequestScope.RequestScopedComponent.class))
+                                    .get());
+
+                    assertNotSame(first, second);
+                    assertFalse(scope.isActive());
+                }
+
+                @Test
+                public void should_throw_exception_if_no_active_scope() {
+                    Context context = config.getContext();
+
+                    assertThrows(
+                            IllegalStateException.class,
+                            () -> context.get(ComponentRef.of(WithRequestScope.RequestScopedComponent.class)));
+                }
+
+                @Test
+                public void should_close_instances_when_task_completes() throws Exception {
+                    config.component(Closeable.class, Closeable.class, new RequestScopedLiteral());
+                    Context context = config.getContext();
+                    List<String> exited = new ArrayList<>();
+
+                    Closeable closeable = scope.call(() -> {
+                        scope.onExit(() -> exited.add("exited"));
+                        return context.get(ComponentRef.of(Closeable.class)).get();
+                    });
+
+                    assertTrue(closeable.closed);
+                    assertEquals(List.of("exited"), exited);
+                }
+
+                @Test
+                public void should_rethrow_exception_from_task() {
+                    IllegalArgumentException failure = new IllegalArgumentException();
+
+                    assertSame(
+                            failure,
+                            assertThrows(
+                                    IllegalArgumentException.class,
+                                    () -> scope.call(() -> {
+                                        throw failure;
+                                    })));
+                }
+            }
+
+            @Nested
+            public class WithThreadScope {
+                ThreadScope scope;
+
+                @BeforeEach
+                void setUp() {
+                    scope = new ThreadScope();
+                    config.scope(ThreadScoped.class, scope);
+                }
+
+                @ThreadScoped
+                static class ThreadScopedComponent {}
+
+                @Test
+                public void should_share_component_within_thread() throws Exception {
+                    config.component(ThreadScopedComponent.class, ThreadScopedComponent.class);
+                    Context context = config.getContext();
+
+                    ThreadScopedComponent component = context.get(ComponentRef.of(ThreadScopedComponent.class))
+                            .get();
+                    assertSame(
+                            component,
+                            context.get(ComponentRef.of(ThreadScopedComponent.class))
+                                    .get());
+
+                    ExecutorService executor = Executors.newSingleThreadExecutor();
+                    try {
+                        Future<ThreadScopedComponent> other =
+                                executor.submit(() -> context.get(ComponentRef.of(ThreadScopedComponent.class))
+                                        .get());
+                        assertNotSame(component, other.get(10, TimeUnit.SECONDS));
+                    } finally {
+                        executor.shutdownNow();
+                    }
+                    scope.exit();
+                }
+
+                @Test
+                public void should_release_thread_instances_on_exit() {
+                    config.component(Closeable.class, Closeable.class, new ThreadScopedLiteral());
+                    Context context = config.getContext();
+                    List<String> exited = new ArrayList<>();
+
+                    Closeable closeable =
+                            context.get(ComponentRef.of(Closeable.class)).get();
+                    scope.onExit(() -> exited.add("exited"));
+                    scope.exit();
+
+                    assertTrue(closeable.closed);
+                    assertEquals(List.of("exited"), exited);
+                    assertNotSame(
+                            closeable,
+                            context.get(ComponentRef.of(Closeable.class)).get());
+                    scope.exit();
+                }
+            }
+
+            @Nested
+            public class WithPoolScope {
+                PoolScope scope;
+
+                @BeforeEach
+                void setUp() {
+                    scope = new PoolScope(2);
+                    config.scope(Pooled.class, scope);
+                }
+
+                @Pooled
+                static class Parser {
+                    int used;
+                }
+
+                static class ParserUser {
+                    @Inject
+                    Provider<Parser> parsers;
+                }
+
+                private <T> PoolScope.Lease<T> lease(Context context, ComponentRef<T> ref) {
+                    return scope.lease(() -> context.get(ref).get());
+                }
+
+                @Test
+                public void should_reuse_released_instance() {
+                    config.component(Parser.class, Parser.class);
+                    Context context = config.getContext();
+
+                    PoolScope.Lease<Parser> lease = lease(context, ComponentRef.of(Parser.class));
+                    Parser parser = lease.get();
+                    assertNotSame(
+                            parser, context.get(ComponentRef.of(Parser.class)).get());
+
+                    lease.release();
+
+                    assertSame(
+                            parser, context.get(ComponentRef.of(Parser.class)).get());
+                }
+
+                @Test
+                public void should_hand_out_pooled_instances_through_provider() {
+                    config.component(Parser.class, Parser.class);
+                    config.component(ParserUser.class, ParserUser.class);
+                    Provider<Parser> parsers = config.getContext()
+                            .get(ComponentRef.of(ParserUser.class))
+                            .get()
+                            .parsers;
+
+                    Parser parser;
+                    try (PoolScope.Lease<Parser> lease = scope.lease(parsers)) {
+                        parser = lease.get();
+                    }
+
+                    assertSame(parser, parsers.get());
+                }
+
+                @Test
+                public void should_not_use_lease_after_release() {
+                    config.component(Parser.class, Parser.class);
+                    Provider<Parser> parsers = config.getContext()
+                            .get(new ComponentRef<Provider<Parser>>() {})
+                            .get();
+
+                    PoolScope.Lease<Parser> lease = scope.lease(parsers);
+                    lease.close();
+
+                    assertThrows(IllegalStateException.class, lease::get);
+                }
+
+                @Test
+                public void should_reset_instance_on_release() {
+                    config.component(Parser.class, Parser.class);
+                    scope.onRelease(Parser.class, parser -> parser.used = 0);
+                    Context context = config.getContext();
+
+                    try (PoolScope.Lease<Parser> lease = lease(context, ComponentRef.of(Parser.class))) {
+                        lease.get().used = 3;
+                    }
+
+                    assertEquals(0, context.get(ComponentRef.of(Parser.class)).get().used);
+                }
+
+                @Test
+                public void should_close_instance_released_into_full_pool() {
+                    config.component(Closeable.class, Closeable.class, new PooledLiteral());
+                    Context context = config.getContext();
+
+                    List<PoolScope.Lease<Closeable>> leases = IntStream.range(0, 3)
+                            .mapToObj(i -> lease(context, ComponentRef.of(Closeable.class)))
+                            .toList();
+                    List<Closeable> instances =
+                            leases.stream().map(PoolScope.Lease::get).toList();
+                    leases.forEach(PoolScope.Lease::release);
+
+                    assertEquals(
+                            List.of(false, false, true),
+                            instances.stream().map(c -> c.closed).toList());
+                }
+
+                static class ParserWrapper {
+                    @Inject
+                    ParserWrapper(Parser parser) {}
+                }
+
+                @Test
+                public void should_reject_lease_from_provider_of_component_not_pooled() {
+                    config.component(Parser.class, Parser.class);
+                    config.component(ParserWrapper.class, ParserWrapper.class);
+                    Context context = config.getContext();
+
+                    assertThrows(IllegalArgumentException.class, () -> scope.lease(Parser::new));
+                    assertThrows(
+                            IllegalArgumentException.class, () -> lease(context, ComponentRef.of(ParserWrapper.class)));
+                }
+
+                @Test
+                public void should_reject_releasing_lease_twice() {
+                    config.component(Parser.class, Parser.class);
+                    Context context = config.getContext();
+                    PoolScope.Lease<Parser> lease = lease(context, ComponentRef.of(Parser.class));
+                    Parser parser = lease.get();
+                    lease.release();
+
+                    assertThrows(IllegalStateException.class, lease::release);
+                    lease.close();
+                    assertSame(
+                            parser, context.get(ComponentRef.of(Parser.class)).get());
+                    assertNotSame(
+                            parser, context.get(ComponentRef.of(Parser.class)).get());
+                }
+
+                @Test
+                public void should_return_instance_to_pool_of_its_binding() {
+                    config.component(Parser.class, Parser.class, new NameLiteral("first"));
+                    config.component(Parser.class, Parser.class, new NameLiteral("second"));
+                    Context context = config.getContext();
+                    ComponentRef<Parser> first = ComponentRef.of(Parser.class, new NameLiteral("first"));
+                    ComponentRef<Parser> second = ComponentRef.of(Parser.class, new NameLiteral("second"));
+
+                    context.get(first).get();
+                    PoolScope.Lease<Parser> lease = lease(context, second);
+                    Parser parser = lease.get();
+                    lease.release();
+
+                    assertNotSame(parser, context.get(first).get());
+                    assertSame(parser, context.get(second).get());
+                }
+
+                @Test
+                public void should_return_instance_to_pool_of_its_config() {
+                    ContextConfig other = new ContextConfig();
+                    other.scope(Pooled.class, scope);
+                    other.component(Parser.class, Parser.class);
+                    config.component(Parser.class, Parser.class);
+                    Context first = other.getContext();
+                    Context second = config.getContext();
+
+                    first.get(ComponentRef.of(Parser.class)).get();
+                    PoolScope.Lease<Parser> lease = lease(second, ComponentRef.of(Parser.class));
+                    Parser parser = lease.get();
+                    lease.release();
+
+                    assertNotSame(
+                            parser, first.get(ComponentRef.of(Parser.class)).get());
+                    assertSame(parser, second.get(ComponentRef.of(Parser.class)).get());
+                }
+
+                @Test
+                public void should_not_keep_instances_handed_out_without_lease() throws InterruptedException {
+                    config.component(Parser.class, Parser.class);
+                    Context context = config.getContext();
+                    java.lang.ref.WeakReference<Parser> injected = new java.lang.ref.WeakReference<>(
+                            context.get(ComponentRef.of(Parser.class)).get());
+
+                    for (int i = 0; i < 50 && injected.get() != null; i++) {
+                        System.gc();
+                        Thread.sleep(10);
+                    }
+
+                    assertNull(injected.get());
+                }
+
+                @Test
+                public void should_not_hand_out_instance_twice_concurrently() throws Exception {
+                    config.component(Parser.class, Parser.class);
+                    Context context = config.getContext();
+                    Set<Parser> leased = ConcurrentHashMap.newKeySet();
+                    AtomicInteger overlaps = new AtomicInteger();
+
+                    ExecutorService executor = Executors.newFixedThreadPool(4);
+                    try {
+                        List<Future<?>> futures = IntStream.range(0, 4)
+                                .mapToObj(t -> executor.submit(() -> {
+                                    for (int i = 0; i < 1000; i++) {
+                                        PoolScope.Lease<Parser> lease = lease(context, ComponentRef.of(Parser.class));
+                                        Parser parser = lease.get();
+                                        if (!leased.add(parser)) {
+                                            overlaps.incrementAndGet();
+                                        }
+                                        leased.remove(parser);
+                                        lease.release();
+                                    }
+                                }))
+                                .collect(Collectors.toList());
+                        for (Future<?> future : futures) {
+                            future.get(10, TimeUnit.SECONDS);
+                        }
+                    } finally {
+                        executor.shutdownNow();
+                    }
+
+                    assertEquals(0, overlaps.get());
+                }
+            }
+
             @Nested
             public class WithQualifier {
                 @Test
@@ -490,6 +1096,64 @@ public class ContextTest {
             return arguments.stream();
         }
 
+        @Test
+        public void should_report_cycle_path_in_message() {
+            config.component(TestComponent.class, CyclicTestComponentInjectConstructor.class);
+            config.component(Dependency.class, CyclicDependencyInjectConstructor.class);
+
+            ContextConfigError error = assertThrows(ContextConfigError.class, () -> config.getContext());
+
+            Component component = new Component(TestComponent.class, null);
+            Component dependency = new Component(Dependency.class, null);
+            assertTrue(Set.of(
+                            ContextConfigError.circularDependencies(List.of(component, dependency), component)
+                                    .getMessage(),
+                            ContextConfigError.circularDependencies(List.of(dependency, component), dependency)
+                                    .getMessage())
+                    .contains(error.getMessage()));
+        }
+
+        interface Left {}
+
+        interface Right {}
+
+        static class LeftInjectRight implements Left {
+            @Inject
+            public LeftInjectRight(Right right) {}
+        }
+
+        static class RightInjectLeft implements Right {
+            @Inject
+            public RightInjectLeft(Left left) {}
+        }
+
+        @Test
+        public void should_report_all_cycles_in_one_pass() {
+            config.component(TestComponent.class, CyclicTestComponentInjectConstructor.class);
+            config.component(Dependency.class, CyclicDependencyInjectConstructor.class);
+            config.component(Left.class, LeftInjectRight.class);
+            config.component(Right.class, RightInjectLeft.class);
+
+            ContextConfigError error = assertThrows(ContextConfigError.class, () -> config.getContext());
+
+            assertEquals(1, error.getSuppressed().length);
+            assertTrue(error.getSuppressed()[0] instanceof ContextConfigError);
+        }
+
+        @Test
+        public void should_check_shared_dependencies_without_cycle() {
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.component(AnotherDependency.class, SharedDependency.class);
+            config.component(Dependency.class, TypeBinding.WithScope.SingletonAnnotated.class);
+
+            assertDoesNotThrow(() -> config.getContext());
+        }
+
+        static class SharedDependency implements AnotherDependency {
+            @Inject
+            public SharedDependency(Dependency dependency, TestComponent component) {}
+        }
+
         static class CyclicTestComponentInjectConstructor implements TestComponent {
             @Inject
             public CyclicTestComponentInjectConstructor(Dependency dependency) {}
@@ -830,5 +1494,1572 @@ public class ContextTest {
                     context.get(ComponentRef.of(Implementation.class)).get(),
                     context.get(ComponentRef.of(Implementation.class)).get());
         }
+
+        abstract static class AbstractImplementation implements Api {}
+
+        abstract static class AnotherAbstractImplementation implements Api {}
+
+        static class AnotherImplementation implements Api {}
+
+        @Test
+        void should_bind_components_scanned_in_parallel() {
+            config.from(new Config() {
+                Implementation implementation;
+
+                @Export(Api.class)
+                AnotherImplementation another;
+
+                @Singleton
+                @Skywalker
+                Implementation skywalker;
+            });
+
+            Context context = config.getContext();
+            assertTrue(context.get(ComponentRef.of(Implementation.class)).isPresent());
+            assertTrue(context.get(ComponentRef.of(Api.class)).get() instanceof AnotherImplementation);
+            assertSame(
+                    context.get(ComponentRef.of(Implementation.class, new SkywalkerLiteral()))
+                            .get(),
+                    context.get(ComponentRef.of(Implementation.class, new SkywalkerLiteral()))
+                            .get());
+        }
+
+        @RepeatedTest(5)
+        void should_report_first_failed_declaration_in_order() {
+            ComponentError error = assertThrows(
+                    ComponentError.class,
+                    () -> config.from(new Config() {
+                        Implementation implementation;
+
+                        AbstractImplementation first;
+
+                        AnotherAbstractImplementation second;
+                    }));
+
+            assertTrue(error.getMessage().contains(AbstractImplementation.class.getName()));
+        }
+
+        @RepeatedTest(5)
+        void should_report_duplicated_declaration_in_order() {
+            ContextConfigException exception = assertThrows(
+                    ContextConfigException.class,
+                    () -> config.from(new Config() {
+                        @Export(Api.class)
+                        Implementation implementation;
+
+                        @Export(Api.class)
+                        AnotherImplementation another;
+
+                        AbstractImplementation invalid;
+                    }));
+
+            assertTrue(exception.getMessage().startsWith("Duplicated"));
+        }
+    }
+
+    @Nested
+    class Compiled {
+        static class ProviderInjection implements TestComponent {
+            @Inject
+            Provider<Dependency> dependency;
+
+            @Override
+            public Dependency dependency() {
+                return dependency.get();
+            }
+        }
+
+        @ParameterizedTest(name = "supporting {0}")
+        @MethodSource("geektime.tdd.di.ContextTest$TypeBinding#should_bing_type_to_an_injectable_component")
+        public void should_resolve_injection_points_from_compiled_context(
+                Class<? extends TestComponent> componentType) {
+            Dependency dependency = new Dependency() {};
+            config.instance(Dependency.class, dependency);
+            config.component(TestComponent.class, componentType);
+
+            Context context = config.compile();
+
+            assertSame(
+                    dependency,
+                    context.get(ComponentRef.of(TestComponent.class)).get().dependency());
+        }
+
+        @Test
+        public void should_keep_resolving_own_components_after_another_config_compiles() {
+            Dependency first = new Dependency() {};
+            config.instance(Dependency.class, first);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            Context context = config.compile();
+
+            ContextConfig other = new ContextConfig();
+            other.instance(Dependency.class, new Dependency() {});
+            other.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            other.compile();
+
+            assertSame(
+                    first,
+                    context.get(ComponentRef.of(TestComponent.class)).get().dependency());
+        }
+
+        @Test
+        public void should_keep_resolving_earlier_context_after_same_config_compiles_again() {
+            Dependency dependency = new Dependency() {};
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.instance(Dependency.class, dependency);
+            Context first = config.compile();
+
+            config.instance(AnotherDependency.class, new AnotherDependency() {});
+            config.instance(String.class, "indirect dependency");
+            Context second = config.compile();
+
+            assertSame(
+                    dependency,
+                    first.get(ComponentRef.of(TestComponent.class)).get().dependency());
+            assertSame(
+                    dependency,
+                    second.get(ComponentRef.of(TestComponent.class)).get().dependency());
+            assertSame(
+                    dependency,
+                    first.get(ComponentRef.of(TestComponent.class)).get().dependency());
+        }
+
+        @Test
+        public void should_resolve_provider_from_compiled_context() {
+            Dependency dependency = new Dependency() {};
+            config.instance(Dependency.class, dependency);
+            config.component(TestComponent.class, ProviderInjection.class);
+
+            Context context = config.compile();
+
+            assertSame(
+                    dependency,
+                    context.get(ComponentRef.of(TestComponent.class)).get().dependency());
+            Provider<Dependency> provider =
+                    context.get(new ComponentRef<Provider<Dependency>>() {}).get();
+            assertSame(dependency, provider.get());
+        }
+
+        @Test
+        public void should_resolve_qualified_component_from_compiled_context() {
+            TestComponent instance = new TestComponent() {};
+            config.instance(TestComponent.class, instance, new NameLiteral("chosenOne"));
+
+            Context context = config.compile();
+
+            assertSame(
+                    instance,
+                    context.get(ComponentRef.of(TestComponent.class, new NameLiteral("chosenOne")))
+                            .get());
+            assertFalse(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+
+        @Test
+        public void should_not_resolve_unsupported_container_from_compiled_context() {
+            config.instance(TestComponent.class, new TestComponent() {});
+
+            Context context = config.compile();
+
+            assertFalse(context.get(new ComponentRef<List<TestComponent>>() {}).isPresent());
+        }
+
+        @Test
+        public void should_keep_singleton_scope_in_compiled_context() {
+            config.component(
+                    TypeBinding.WithScope.NotSingleton.class,
+                    TypeBinding.WithScope.NotSingleton.class,
+                    new SingletonLiteral());
+
+            Context context = config.compile();
+
+            assertSame(
+                    context.get(ComponentRef.of(TypeBinding.WithScope.NotSingleton.class))
+                            .get(),
+                    context.get(ComponentRef.of(TypeBinding.WithScope.NotSingleton.class))
+                            .get());
+        }
+
+        @Test
+        public void should_not_see_bindings_added_after_compile() {
+            Context context = config.compile();
+
+            config.instance(TestComponent.class, new TestComponent() {});
+
+            assertFalse(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+
+        static class InjectionPoints {
+            final Dependency constructed;
+
+            @Inject
+            Dependency field;
+
+            Dependency installed;
+
+            @Inject
+            InjectionPoints(Dependency dependency) {
+                this.constructed = dependency;
+            }
+
+            @Inject
+            void install(Dependency dependency, AnotherDependency another) {
+                this.installed = dependency;
+            }
+        }
+
+        @ParameterizedTest
+        @EnumSource(names = {"METHOD_HANDLE", "HIDDEN_CLASS"})
+        public void should_allocate_one_argument_array_per_component(InjectionEngine engine) {
+            config.engine(engine);
+            config.instance(Dependency.class, new Dependency() {});
+            config.instance(AnotherDependency.class, new AnotherDependency() {});
+            config.component(InjectionPoints.class, InjectionPoints.class);
+            Context context = config.compile();
+            ComponentRef<InjectionPoints> ref = ComponentRef.of(InjectionPoints.class);
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            for (int i = 0; i < 100_000; i++) {
+                context.getOrNull(ref);
+            }
+
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                context.getOrNull(ref);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+            // the instance and one array for the four arguments, where an array per point would add three more
+            assertTrue(allocated < 10_000 * 100, allocated + " bytes allocated");
+        }
+
+        @Test
+        public void should_check_dependencies_when_compile() {
+            config.component(TestComponent.class, DependencyCheck.MissingDependencyConstructor.class);
+
+            assertThrows(ContextConfigError.class, () -> config.compile());
+        }
+    }
+
+    @Nested
+    class Eager {
+        static final List<Class<?>> created = new CopyOnWriteArrayList<>();
+        static CyclicBarrier barrier;
+
+        ExecutorService executor;
+
+        @BeforeEach
+        void setUp() {
+            created.clear();
+            executor = Executors.newFixedThreadPool(4);
+        }
+
+        @AfterEach
+        void tearDown() {
+            executor.shutdownNow();
+        }
+
+        @Singleton
+        static class SingletonDependency implements Dependency {
+            @Inject
+            SingletonDependency() {
+                created.add(SingletonDependency.class);
+            }
+        }
+
+        static class PrototypeComponent implements TestComponent {
+            @Inject
+            PrototypeComponent(Dependency dependency) {
+                created.add(PrototypeComponent.class);
+            }
+        }
+
+        @Singleton
+        static class SingletonComponent implements TestComponent {
+            @Inject
+            SingletonComponent(Dependency dependency) {
+                created.add(SingletonComponent.class);
+            }
+        }
+
+        @Singleton
+        static class Waiting implements Dependency {
+            @Inject
+            Waiting() throws Exception {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+        }
+
+        @Singleton
+        static class AnotherWaiting implements AnotherDependency {
+            @Inject
+            AnotherWaiting() throws Exception {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+        }
+
+        @Singleton
+        static class Failing implements Dependency {
+            @Inject
+            Failing() {
+                throw new IllegalStateException("failed");
+            }
+        }
+
+        @Test
+        public void should_create_singletons_when_get_context() {
+            config.component(Dependency.class, SingletonDependency.class);
+            config.component(TestComponent.class, PrototypeComponent.class);
+            config.eager(executor);
+
+            Context context = config.getContext();
+
+            assertEquals(List.of(SingletonDependency.class), created);
+            context.get(ComponentRef.of(Dependency.class)).get();
+            assertEquals(List.of(SingletonDependency.class), created);
+        }
+
+        @Test
+        public void should_create_dependencies_before_dependents() {
+            config.component(TestComponent.class, SingletonComponent.class);
+            config.component(Dependency.class, SingletonDependency.class);
+            config.eager(executor);
+
+            config.compile();
+
+            assertEquals(List.of(SingletonDependency.class, SingletonComponent.class), created);
+        }
+
+        @Test
+        public void should_create_independent_singletons_in_parallel() {
+            barrier = new CyclicBarrier(2);
+            config.component(Dependency.class, Waiting.class);
+            config.component(AnotherDependency.class, AnotherWaiting.class);
+            config.eager(executor);
+
+            Context context = assertDoesNotThrow(() -> config.getContext());
+
+            assertNotNull(context.get(ComponentRef.of(Dependency.class)).get());
+        }
+
+        @Test
+        public void should_throw_exception_from_singleton_construction() {
+            config.component(Dependency.class, Failing.class);
+            config.eager(executor);
+
+            assertThrows(RuntimeException.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_not_create_singletons_if_not_eager() {
+            config.component(Dependency.class, SingletonDependency.class);
+
+            config.getContext();
+
+            assertTrue(created.isEmpty());
+        }
+    }
+
+    @Nested
+    class Instrumented {
+        Metrics metrics = new Metrics();
+
+        @BeforeEach
+        void setUp() {
+            config.instrument(metrics);
+        }
+
+        static class SlowDependency implements Dependency {
+            @Inject
+            SlowDependency() throws InterruptedException {
+                Thread.sleep(50);
+            }
+        }
+
+        @Singleton
+        static class SingletonComponent implements TestComponent {
+            @Inject
+            SingletonComponent(Dependency dependency) {}
+        }
+
+        static class StaticsComponent {
+            @Inject
+            static Dependency dependency;
+        }
+
+        @Test
+        public void should_count_prototype_creations() {
+            config.component(Dependency.class, SlowDependency.class);
+            Context context = config.getContext();
+
+            IntStream.range(0, 3).forEach(i -> context.get(ComponentRef.of(Dependency.class)));
+
+            assertEquals(
+                    3,
+                    metrics.snapshot().get(Component.of(Dependency.class, null)).created());
+        }
+
+        @Test
+        public void should_exclude_dependency_time_from_construction_time() {
+            config.component(Dependency.class, SlowDependency.class);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            config.getContext().get(ComponentRef.of(TestComponent.class));
+
+            Metrics.Counters dependency = metrics.snapshot().get(Component.of(Dependency.class, null));
+            Metrics.Counters component = metrics.snapshot().get(Component.of(TestComponent.class, null));
+            assertTrue(dependency.constructionNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertEquals(dependency.constructionNanos(), dependency.maxConstructionNanos());
+            assertTrue(component.constructionNanos() < TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        @Test
+        public void should_record_singleton_initialization_including_dependencies() {
+            config.component(Dependency.class, SlowDependency.class);
+            config.component(TestComponent.class, SingletonComponent.class);
+            Context context = config.compile();
+
+            context.get(ComponentRef.of(TestComponent.class));
+            context.get(ComponentRef.of(TestComponent.class));
+
+            Metrics.Counters component = metrics.snapshot().get(Component.of(TestComponent.class, null));
+            assertEquals(1, component.created());
+            assertTrue(component.singletonNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(component.constructionNanos() < TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        @Test
+        public void should_record_static_member_injection() {
+            config.instance(Dependency.class, new Dependency() {});
+            config.from(new Config() {
+                @Static
+                StaticsComponent component;
+            });
+
+            config.getContext();
+
+            Metrics.Counters statics = metrics.snapshot().get(Component.of(StaticsComponent.class, null));
+            assertEquals(0, statics.created());
+            assertNotNull(StaticsComponent.dependency);
+        }
+
+        @Test
+        public void should_not_record_when_not_instrumented() {
+            config.instrument(null);
+            config.component(Dependency.class, SlowDependency.class);
+
+            config.getContext().get(ComponentRef.of(Dependency.class));
+
+            assertTrue(metrics.snapshot().isEmpty());
+        }
+    }
+
+    @Nested
+    class Tracing {
+        BootTracer tracer = new BootTracer();
+
+        @TempDir
+        Path directory;
+
+        @BeforeEach
+        void setUp() {
+            config.trace(tracer);
+        }
+
+        @Singleton
+        static class SingletonDependency implements Dependency {
+            @Inject
+            SingletonDependency() {}
+        }
+
+        private List<String> names() {
+            return tracer.events().stream().map(BootTracer.Event::name).toList();
+        }
+
+        private BootTracer.Event event(String name) {
+            return tracer.events().stream()
+                    .filter(e -> e.name().equals(name))
+                    .findFirst()
+                    .orElseThrow();
+        }
+
+        @Test
+        public void should_trace_binding_registration_and_scanning() {
+            config.from(new Config() {
+                SingletonDependency dependency;
+            });
+
+            BootTracer.Event bind = event("bind dependency");
+            BootTracer.Event scan = event("scan " + SingletonDependency.class.getName());
+            assertTrue(names().get(0).startsWith("from "));
+            assertTrue(scan.start() >= bind.start());
+            assertTrue(scan.start() + scan.duration() <= bind.start() + bind.duration());
+        }
+
+        @Test
+        public void should_trace_container_boot() {
+            config.component(Dependency.class, SingletonDependency.class);
+            config.eager(Runnable::run);
+
+            config.getContext();
+
+            assertTrue(names().containsAll(List.of(
+                    "getContext", "validate", "statics", "eager", "create " + Component.of(Dependency.class, null))));
+            BootTracer.Event boot = event("getContext");
+            tracer.events().forEach(e -> assertTrue(e.start() + e.duration() <= boot.start() + boot.duration()));
+        }
+
+        @Test
+        public void should_write_trace_events_in_chrome_format() throws IOException {
+            Path file = directory.resolve("boot.json");
+            config.component(Dependency.class, SingletonDependency.class);
+            config.compile();
+
+            tracer.write(file);
+
+            String trace = Files.readString(file);
+            assertTrue(trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+            assertTrue(trace.contains("\"name\":\"compile\",\"cat\":\"boot\",\"ph\":\"X\""));
+            assertTrue(trace.contains("\"name\":\"thread_name\",\"ph\":\"M\""));
+            assertTrue(trace.contains("\"name\":\"scan geektime.tdd.di.ContextTest$Tracing$SingletonDependency\""));
+        }
+
+        @Test
+        public void should_not_trace_if_no_tracer() {
+            config.trace(null);
+            config.component(Dependency.class, SingletonDependency.class);
+
+            config.getContext();
+
+            assertTrue(tracer.events().isEmpty());
+        }
+    }
+
+    @Nested
+    class Hierarchy {
+        @Singleton
+        static class SingletonDependency implements Dependency {
+            @Inject
+            SingletonDependency() {}
+        }
+
+        @Singleton
+        static class SingletonComponent implements TestComponent {
+            Dependency dependency;
+
+            @Inject
+            SingletonComponent(Dependency dependency) {
+                this.dependency = dependency;
+            }
+
+            @Override
+            public Dependency dependency() {
+                return dependency;
+            }
+        }
+
+        private Context parent(boolean compiled) {
+            config.component(Dependency.class, SingletonDependency.class);
+            return compiled ? config.compile() : config.getContext();
+        }
+
+        private Context child(ContextConfig child, boolean compiled) {
+            return compiled ? child.compile() : child.getContext();
+        }
+
+        @ParameterizedTest(name = "compiled {0}")
+        @ValueSource(booleans = {false, true})
+        public void should_share_parent_singletons_with_child(boolean compiled) {
+            Context parent = parent(compiled);
+            ContextConfig config = new ContextConfig(parent);
+            config.component(TestComponent.class, SingletonComponent.class);
+
+            Context child = child(config, compiled);
+
+            Dependency dependency =
+                    parent.get(ComponentRef.of(Dependency.class)).get();
+            assertSame(dependency, child.get(ComponentRef.of(Dependency.class)).get());
+            assertSame(
+                    dependency,
+                    child.get(ComponentRef.of(TestComponent.class)).get().dependency());
+            assertSame(
+                    dependency,
+                    child.get(new ComponentRef<Provider<Dependency>>() {}).get().get());
+        }
+
+        @ParameterizedTest(name = "compiled {0}")
+        @ValueSource(booleans = {false, true})
+        public void should_not_expose_child_bindings_to_parent(boolean compiled) {
+            Context parent = parent(compiled);
+            ContextConfig config = new ContextConfig(parent);
+            config.component(TestComponent.class, SingletonComponent.class);
+
+            child(config, compiled);
+
+            assertTrue(parent.get(ComponentRef.of(TestComponent.class)).isEmpty());
+        }
+
+        @Test
+        public void should_isolate_siblings() {
+            Context parent = parent(true);
+            ContextConfig first = new ContextConfig(parent);
+            first.component(TestComponent.class, SingletonComponent.class);
+            ContextConfig second = new ContextConfig(parent);
+            second.component(TestComponent.class, SingletonComponent.class);
+
+            assertNotSame(
+                    first.compile().get(ComponentRef.of(TestComponent.class)).get(),
+                    second.compile().get(ComponentRef.of(TestComponent.class)).get());
+        }
+
+        public static class CountingIndex implements InjectionIndex {
+            static final AtomicInteger loads = new AtomicInteger();
+
+            public CountingIndex() {
+                loads.incrementAndGet();
+            }
+
+            @Override
+            public Map<String, java.util.function.Supplier<ComponentProvider<?>>> providers() {
+                return Map.of();
+            }
+        }
+
+        @Test
+        public void should_load_injection_indexes_once_for_parent_and_children(@TempDir Path classes)
+                throws IOException {
+            Path services = classes.resolve("META-INF/services/" + InjectionIndex.class.getName());
+            Files.createDirectories(services.getParent());
+            Files.writeString(services, CountingIndex.class.getName());
+            Thread thread = Thread.currentThread();
+            ClassLoader original = thread.getContextClassLoader();
+            try (java.net.URLClassLoader loader = new java.net.URLClassLoader(
+                    new java.net.URL[] {classes.toUri().toURL()}, getClass().getClassLoader())) {
+                thread.setContextClassLoader(loader);
+                CountingIndex.loads.set(0);
+
+                ContextConfig config = new ContextConfig();
+                Context parent = config.getContext();
+                List<ContextConfig> children = List.of(new ContextConfig(parent), new ContextConfig(parent));
+                children.forEach(ContextConfig::getContext);
+
+                assertEquals(1, CountingIndex.loads.get());
+                java.lang.ref.Reference.reachabilityFence(config);
+            } finally {
+                thread.setContextClassLoader(original);
+            }
+        }
+
+        @Test
+        public void should_delegate_through_grandparent() {
+            ContextConfig config = new ContextConfig(parent(true));
+            config.component(TestComponent.class, SingletonComponent.class);
+            ContextConfig grandchild = new ContextConfig(config.compile());
+            grandchild.instance(AnotherDependency.class, new AnotherDependency() {});
+
+            Context context = grandchild.compile();
+
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+            assertTrue(context.get(ComponentRef.of(Dependency.class)).isPresent());
+        }
+
+        @Test
+        public void should_throw_exception_if_child_binding_duplicates_parent() {
+            ContextConfig config = new ContextConfig(parent(false));
+
+            assertThrows(
+                    ContextConfigException.class, () -> config.component(Dependency.class, SingletonDependency.class));
+        }
+
+        @Test
+        public void should_throw_exception_if_dependency_not_found_in_child_nor_parent() {
+            ContextConfig config = new ContextConfig(new ContextConfig().compile());
+            config.component(TestComponent.class, SingletonComponent.class);
+
+            ContextConfigError error = assertThrows(ContextConfigError.class, config::compile);
+
+            assertTrue(error.getMessage().contains(Dependency.class.getName()));
+        }
+
+        @Test
+        public void should_warm_up_child_singletons_depending_on_parent() {
+            ContextConfig config = new ContextConfig(parent(false));
+            config.component(TestComponent.class, SingletonComponent.class);
+            config.eager(Runnable::run);
+
+            assertNotNull(config.getContext()
+                    .get(ComponentRef.of(TestComponent.class))
+                    .get());
+        }
+
+        @Test
+        public void should_only_accept_container_context_as_parent() {
+            Context context = new Context() {
+                @Override
+                public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef) {
+                    return Optional.empty();
+                }
+            };
+
+            assertThrows(ContextConfigException.class, () -> new ContextConfig(context));
+        }
+    }
+
+    @Nested
+    class Multibindings {
+        interface Handler {}
+
+        static class FirstHandler implements Handler {}
+
+        @Singleton
+        static class SingletonHandler implements Handler {}
+
+        static class HandlerWithDependency implements Handler {
+            @Inject
+            Dependency dependency;
+        }
+
+        static class CyclicHandler implements Handler {
+            @Inject
+            Set<Handler> handlers;
+        }
+
+        static class Dispatcher {
+            final Set<Handler> handlers;
+
+            @Inject
+            Map<String, Handler> routes;
+
+            @Inject
+            Dispatcher(Set<Handler> handlers) {
+                this.handlers = handlers;
+            }
+        }
+
+        static class NamedDispatcher {
+            @Inject
+            @jakarta.inject.Named("chosenOne")
+            Set<Handler> handlers;
+        }
+
+        private Set<Class<?>> types(Collection<Handler> handlers) {
+            return handlers.stream().map(Object::getClass).collect(Collectors.toSet());
+        }
+
+        @ParameterizedTest(name = "compiled {0}")
+        @ValueSource(booleans = {false, true})
+        public void should_inject_set_of_contributed_elements(boolean compiled) {
+            Handler instance = new Handler() {};
+            config.element(Handler.class, FirstHandler.class);
+            config.element(Handler.class, SingletonHandler.class);
+            config.element(Handler.class, instance);
+            config.component(Dispatcher.class, Dispatcher.class);
+            config.entry(Handler.class, "first", FirstHandler.class);
+
+            Context context = compiled ? config.compile() : config.getContext();
+            Dispatcher dispatcher =
+                    context.get(ComponentRef.of(Dispatcher.class)).get();
+
+            assertEquals(
+                    Set.of(FirstHandler.class, SingletonHandler.class, instance.getClass()),
+                    types(dispatcher.handlers));
+            assertTrue(dispatcher.handlers.contains(instance));
+            assertEquals(Set.of("first"), dispatcher.routes.keySet());
+            assertTrue(dispatcher.routes.get("first") instanceof FirstHandler);
+        }
+
+        @Test
+        public void should_retrieve_collections_from_context() {
+            config.element(Handler.class, FirstHandler.class);
+            config.entry(Handler.class, "first", FirstHandler.class);
+
+            Context context = config.getContext();
+
+            assertEquals(
+                    1, context.get(new ComponentRef<Set<Handler>>() {}).get().size());
+            assertEquals(
+                    Set.of("first"),
+                    context.get(new ComponentRef<Map<String, Handler>>() {})
+                            .get()
+                            .keySet());
+            assertTrue(context.get(ComponentRef.of(Handler.class)).isEmpty());
+        }
+
+        @Test
+        public void should_build_singleton_collections_once_when_compiled() {
+            config.element(Handler.class, SingletonHandler.class);
+            config.element(Handler.class, new Handler() {});
+
+            Context context = config.compile();
+            Set<Handler> handlers =
+                    context.get(new ComponentRef<Set<Handler>>() {}).get();
+
+            assertSame(
+                    handlers, context.get(new ComponentRef<Set<Handler>>() {}).get());
+            assertThrows(UnsupportedOperationException.class, () -> handlers.add(new Handler() {}));
+        }
+
+        @Test
+        public void should_create_new_collection_for_prototype_elements() {
+            config.element(Handler.class, FirstHandler.class);
+
+            Context context = config.compile();
+
+            assertNotSame(
+                    context.get(new ComponentRef<Set<Handler>>() {})
+                            .get()
+                            .iterator()
+                            .next(),
+                    context.get(new ComponentRef<Set<Handler>>() {})
+                            .get()
+                            .iterator()
+                            .next());
+        }
+
+        @Test
+        public void should_contribute_to_qualified_collection() {
+            config.element(Handler.class, FirstHandler.class, new NameLiteral("chosenOne"));
+            config.element(Handler.class, SingletonHandler.class);
+            config.component(NamedDispatcher.class, NamedDispatcher.class);
+
+            NamedDispatcher dispatcher = config.getContext()
+                    .get(ComponentRef.of(NamedDispatcher.class))
+                    .get();
+
+            assertEquals(Set.of(FirstHandler.class), types(dispatcher.handlers));
+        }
+
+        @Test
+        public void should_throw_exception_if_map_key_duplicated() {
+            config.entry(Handler.class, "first", FirstHandler.class);
+
+            assertThrows(
+                    ContextConfigException.class, () -> config.entry(Handler.class, "first", SingletonHandler.class));
+        }
+
+        @Test
+        public void should_check_dependencies_of_elements() {
+            config.element(Handler.class, HandlerWithDependency.class);
+
+            ContextConfigError error = assertThrows(ContextConfigError.class, () -> config.getContext());
+
+            assertTrue(error.getMessage().contains(Dependency.class.getName()));
+        }
+
+        @Test
+        public void should_throw_exception_if_element_depends_on_its_collection() {
+            config.element(Handler.class, CyclicHandler.class);
+
+            assertThrows(ContextConfigError.class, () -> config.getContext());
+        }
+    }
+
+    @Nested
+    class LazyInjection {
+        static final AtomicInteger created = new AtomicInteger();
+
+        @BeforeEach
+        void setUp() {
+            created.set(0);
+        }
+
+        static class ExpensiveDependency implements Dependency {
+            @Inject
+            ExpensiveDependency() {
+                created.incrementAndGet();
+            }
+        }
+
+        static class LazyComponent implements TestComponent {
+            @Inject
+            Lazy<Dependency> dependency;
+
+            @Override
+            public Dependency dependency() {
+                return dependency.get();
+            }
+        }
+
+        static class LazyCyclicDependency implements Dependency {
+            @Inject
+            LazyCyclicDependency(TestComponent component) {}
+        }
+
+        @ParameterizedTest(name = "compiled {0}")
+        @ValueSource(booleans = {false, true})
+        public void should_create_dependency_on_first_use_only(boolean compiled) {
+            config.component(Dependency.class, ExpensiveDependency.class);
+            config.component(TestComponent.class, LazyComponent.class);
+            Context context = compiled ? config.compile() : config.getContext();
+
+            TestComponent component =
+                    context.get(ComponentRef.of(TestComponent.class)).get();
+
+            assertEquals(0, created.get());
+            assertSame(component.dependency(), component.dependency());
+            assertEquals(1, created.get());
+        }
+
+        @Test
+        public void should_retrieve_lazy_from_context() {
+            config.component(Dependency.class, ExpensiveDependency.class);
+
+            Lazy<Dependency> lazy = config.compile()
+                    .get(new ComponentRef<Lazy<Dependency>>() {})
+                    .get();
+
+            assertEquals(0, created.get());
+            assertTrue(lazy.get() instanceof ExpensiveDependency);
+        }
+
+        @Test
+        public void should_create_dependency_once_when_used_concurrently() throws Exception {
+            config.component(Dependency.class, ExpensiveDependency.class);
+            Lazy<Dependency> lazy = config.compile()
+                    .get(new ComponentRef<Lazy<Dependency>>() {})
+                    .get();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Dependency>> results = new ArrayList<>();
+                IntStream.range(0, 64).forEach(i -> results.add(executor.submit(lazy::get)));
+                Set<Dependency> instances = new HashSet<>();
+                for (Future<Dependency> result : results) {
+                    instances.add(result.get(10, TimeUnit.SECONDS));
+                }
+                assertEquals(1, instances.size());
+                assertEquals(1, created.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        public void should_not_throw_exception_if_cyclic_dependency_via_lazy() {
+            config.component(TestComponent.class, LazyComponent.class);
+            config.component(Dependency.class, LazyCyclicDependency.class);
+
+            Context context = assertDoesNotThrow(() -> config.getContext());
+
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+
+        @Test
+        public void should_throw_exception_if_lazy_dependency_not_found() {
+            config.component(TestComponent.class, LazyComponent.class);
+
+            assertThrows(ContextConfigError.class, () -> config.getContext());
+        }
+    }
+
+    @Nested
+    class Revalidation {
+        static final AtomicInteger checked = new AtomicInteger();
+        static final AtomicInteger injected = new AtomicInteger();
+
+        @BeforeEach
+        void setUp() {
+            checked.set(0);
+            injected.set(0);
+            config.scope(Pooled.class, provider -> new ComponentProvider<Object>() {
+                @Override
+                public Object get(Context context) {
+                    return provider.get(context);
+                }
+
+                @Override
+                public List<ComponentRef<?>> getDependencies() {
+                    checked.incrementAndGet();
+                    return provider.getDependencies();
+                }
+            });
+        }
+
+        static class StaticsComponent {
+            @Inject
+            static void install(Dependency dependency) {
+                injected.incrementAndGet();
+            }
+        }
+
+        static class HandlerDependingOnComponent implements Multibindings.Handler {
+            @Inject
+            HandlerDependingOnComponent(TestComponent component) {}
+        }
+
+        static class ComponentWithHandlers implements TestComponent {
+            @Inject
+            ComponentWithHandlers(Set<Multibindings.Handler> handlers) {}
+        }
+
+        @Test
+        public void should_only_validate_bindings_added_since_last_context() {
+            config.component(Dependency.class, DependencyWithInjectConstructor.class, new PooledLiteral());
+            config.getContext();
+            assertEquals(1, checked.get());
+
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.getContext();
+            config.getContext();
+
+            assertEquals(1, checked.get());
+        }
+
+        @Test
+        public void should_check_new_binding_against_validated_components() {
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+            config.getContext();
+
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.component(DependencyCheck.Left.class, DependencyCheck.LeftInjectRight.class);
+            config.component(DependencyCheck.Right.class, DependencyCheck.RightInjectLeft.class);
+
+            assertThrows(ContextConfigError.class, () -> config.getContext());
+            assertThrows(ContextConfigError.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_detect_cycle_closed_by_new_element_of_validated_collection() {
+            config.component(TestComponent.class, ComponentWithHandlers.class);
+            config.element(Multibindings.Handler.class, Multibindings.FirstHandler.class);
+            config.getContext();
+
+            config.element(Multibindings.Handler.class, HandlerDependingOnComponent.class);
+
+            assertThrows(ContextConfigError.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_inject_static_members_once() {
+            config.instance(Dependency.class, new Dependency() {});
+            config.from(new Config() {
+                @Static
+                StaticsComponent component;
+            });
+
+            config.getContext();
+            config.getContext();
+            config.compile();
+
+            assertEquals(1, injected.get());
+        }
+    }
+
+    @Nested
+    class Graph {
+        @Singleton
+        static class SingletonDependency implements Dependency {
+            @Inject
+            SingletonDependency() {}
+        }
+
+        static class ComponentWithLazyDependency implements TestComponent {
+            @Inject
+            ComponentWithLazyDependency(Lazy<Dependency> dependency) {}
+        }
+
+        static class AnotherDependencyOnComponent implements AnotherDependency {
+            @Inject
+            AnotherDependencyOnComponent(TestComponent component, Dependency dependency) {}
+        }
+
+        static class ComponentWithHandlers implements TestComponent {
+            @Inject
+            ComponentWithHandlers(Set<Multibindings.Handler> handlers) {}
+        }
+
+        static class SlowDependency implements Dependency {
+            @Inject
+            SlowDependency() throws InterruptedException {
+                Thread.sleep(20);
+            }
+        }
+
+        private final Component dependency = Component.of(Dependency.class, null);
+        private final Component component = Component.of(TestComponent.class, null);
+        private final Component another = Component.of(AnotherDependency.class, null);
+
+        @Test
+        public void should_list_nodes_dependencies_first() {
+            config.component(AnotherDependency.class, AnotherDependencyOnComponent.class);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+
+            DependencyGraph graph = config.graph();
+
+            assertEquals(List.of(dependency, component, another), graph.topologicalOrder());
+            assertEquals(
+                    DependencyWithInjectConstructor.class,
+                    graph.node(dependency).get().implementation());
+            assertEquals(2, graph.fanIn(dependency));
+            assertEquals(2, graph.fanOut(another));
+            assertEquals(2, graph.depth(another));
+            assertEquals(2, graph.maxDepth());
+        }
+
+        @Test
+        public void should_count_objects_constructed_per_resolution() {
+            config.component(AnotherDependency.class, AnotherDependencyOnComponent.class);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+
+            assertEquals(4, config.graph().objectsPerResolution(another));
+        }
+
+        @Test
+        public void should_not_count_shared_dependencies() {
+            config.component(AnotherDependency.class, AnotherDependencyOnComponent.class);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.component(Dependency.class, SingletonDependency.class);
+
+            DependencyGraph graph = config.graph();
+
+            assertEquals(Singleton.class, graph.node(dependency).get().scope());
+            assertEquals(0, graph.objectsPerResolution(dependency));
+            assertEquals(2, graph.objectsPerResolution(another));
+        }
+
+        @Test
+        public void should_mark_provider_and_lazy_dependencies_as_deferred() {
+            config.component(TestComponent.class, ComponentWithLazyDependency.class);
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+
+            DependencyGraph graph = config.graph();
+
+            assertEquals(List.of(new DependencyGraph.Edge(component, dependency, true)), graph.edges());
+            assertEquals(0, graph.depth(component));
+            assertEquals(1, graph.objectsPerResolution(component));
+        }
+
+        @Test
+        public void should_count_prototype_elements_of_collection() {
+            config.component(TestComponent.class, ComponentWithHandlers.class);
+            config.element(Multibindings.Handler.class, Multibindings.FirstHandler.class);
+            config.element(Multibindings.Handler.class, Multibindings.SingletonHandler.class);
+
+            DependencyGraph graph = config.graph();
+            Component handlers = Component.of(Multibindings.Handler.class, null, Set.class);
+
+            assertNull(graph.node(handlers).get().implementation());
+            assertEquals(2, graph.node(handlers).get().constructs());
+            assertEquals(3, graph.objectsPerResolution(component));
+        }
+
+        @Test
+        public void should_skip_dependencies_owned_by_parent() {
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+            ContextConfig child = new ContextConfig(config.getContext());
+            child.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            DependencyGraph graph = child.graph();
+
+            assertEquals(List.of(component), graph.topologicalOrder());
+            assertEquals(List.of(), graph.edges());
+        }
+
+        @Test
+        public void should_check_dependencies_before_building_graph() {
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            assertThrows(ContextConfigError.class, () -> config.graph());
+        }
+
+        @Test
+        public void should_estimate_cost_from_metrics() {
+            Metrics metrics = new Metrics();
+            config.instrument(metrics);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.component(Dependency.class, SlowDependency.class);
+
+            assertTrue(config.graph().estimatedCost(component).isEmpty());
+
+            config.getContext().get(ComponentRef.of(TestComponent.class));
+            DependencyGraph graph = config.graph();
+
+            assertTrue(graph.estimatedCost(component).getAsLong() >= 20_000_000L);
+            assertTrue(graph.estimatedCost(dependency).getAsLong() >= 20_000_000L);
+        }
+
+        @Test
+        public void should_export_dot() {
+            config.component(TestComponent.class, ComponentWithLazyDependency.class);
+            config.component(Dependency.class, SingletonDependency.class);
+
+            assertEquals(
+                    """
+                    digraph dependencies {
+                      n0 [label="Dependency\\n@Singleton", style=filled];
+                      n1 [label="TestComponent"];
+                      n1 -> n0 [style=dashed];
+                    }
+                    """,
+                    config.graph().toDot());
+        }
+
+        @Test
+        public void should_export_json() {
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.instance(Dependency.class, new Dependency() {});
+
+            assertEquals(
+                    "{\"nodes\":["
+                            + "{\"id\":0,\"type\":\"geektime.tdd.di.Dependency\",\"qualifier\":null,\"collection\":null,"
+                            + "\"implementation\":null,\"scope\":null,\"fanIn\":1,\"fanOut\":0,\"depth\":0,\"objects\":0},"
+                            + "{\"id\":1,\"type\":\"geektime.tdd.di.TestComponent\",\"qualifier\":null,\"collection\":null,"
+                            + "\"implementation\":\"geektime.tdd.di.ContextTest$TypeBinding$ConstructorInjection\",\"scope\":null,"
+                            + "\"fanIn\":0,\"fanOut\":1,\"depth\":1,\"objects\":1}],"
+                            + "\"edges\":[{\"from\":1,\"to\":0,\"deferred\":false}]}",
+                    config.graph().toJson());
+        }
+    }
+
+    @Nested
+    class ScopeWidening {
+        static class DependencyOnAnother implements Dependency {
+            @Inject
+            DependencyOnAnother(AnotherDependency dependency) {}
+        }
+
+        static class AnotherDependencyWithInjectConstructor implements AnotherDependency {
+            @Inject
+            AnotherDependencyWithInjectConstructor() {}
+        }
+
+        static class ComponentWithProvider implements TestComponent {
+            @Inject
+            ComponentWithProvider(Provider<Dependency> dependency) {}
+        }
+
+        private final Component component = Component.of(TestComponent.class, null);
+        private final Component dependency = Component.of(Dependency.class, null);
+        private final Component another = Component.of(AnotherDependency.class, null);
+
+        @Test
+        public void should_report_prototype_held_by_singleton() {
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+            config.getContext();
+
+            List<Diagnostics.Widening> widenings = config.diagnostics().widenings();
+
+            assertEquals(
+                    List.of(new Diagnostics.Widening(List.of(component, dependency), Singleton.class, null)),
+                    widenings);
+        }
+
+        @Test
+        public void should_not_report_prototype_behind_provider() {
+            config.component(TestComponent.class, ComponentWithProvider.class, new SingletonLiteral());
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+
+            assertEquals(List.of(), config.diagnostics().widenings());
+        }
+
+        @Test
+        public void should_not_report_instance_held_by_singleton() {
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            config.instance(Dependency.class, new Dependency() {});
+
+            assertEquals(List.of(), config.diagnostics().widenings());
+        }
+
+        @Test
+        public void should_report_scoped_dependency_captured_through_prototype() {
+            config.scope(Pooled.class, PooledProvider::new);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            config.component(Dependency.class, DependencyOnAnother.class);
+            config.component(
+                    AnotherDependency.class, AnotherDependencyWithInjectConstructor.class, new PooledLiteral());
+
+            assertEquals(
+                    List.of(
+                            new Diagnostics.Widening(List.of(component, dependency), Singleton.class, null),
+                            new Diagnostics.Widening(
+                                    List.of(component, dependency, another), Singleton.class, Pooled.class)),
+                    config.diagnostics().widenings());
+        }
+
+        @Test
+        public void should_report_shorter_lived_scope_held_by_thread_scope() {
+            config.scope(ThreadScoped.class, new ThreadScope());
+            config.scope(RequestScoped.class, new RequestScope());
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new ThreadScopedLiteral());
+            config.component(Dependency.class, DependencyWithInjectConstructor.class, new RequestScopedLiteral());
+
+            assertEquals(
+                    List.of(new Diagnostics.Widening(
+                            List.of(component, dependency), ThreadScoped.class, RequestScoped.class)),
+                    config.diagnostics().widenings());
+        }
+
+        @Test
+        public void should_not_report_longer_lived_scope_held_by_thread_scope() {
+            config.scope(ThreadScoped.class, new ThreadScope());
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new ThreadScopedLiteral());
+            config.component(Dependency.class, DependencyWithInjectConstructor.class, new SingletonLiteral());
+
+            assertEquals(List.of(), config.diagnostics().widenings());
+        }
+
+        @Test
+        public void should_report_thread_scope_held_by_pooled_component() {
+            config.scope(ThreadScoped.class, new ThreadScope());
+            config.scope(Pooled.class, new PoolScope());
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new PooledLiteral());
+            config.component(Dependency.class, DependencyWithInjectConstructor.class, new ThreadScopedLiteral());
+
+            assertEquals(
+                    List.of(new Diagnostics.Widening(List.of(component, dependency), Pooled.class, ThreadScoped.class)),
+                    config.diagnostics().widenings());
+        }
+
+        @Test
+        public void should_reject_scope_widening_if_configured() {
+            config.scopeCheck(ScopeCheck.REJECT);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+
+            ContextConfigError error = assertThrows(ContextConfigError.class, () -> config.getContext());
+
+            assertTrue(error.getMessage().contains("Scope widening"));
+            assertThrows(ContextConfigError.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_check_bindings_added_after_validation() {
+            config.component(Dependency.class, DependencyWithInjectConstructor.class);
+            config.getContext();
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            config.getContext();
+
+            assertEquals(1, config.diagnostics().widenings().size());
+        }
+
+        @Test
+        public void should_count_objects_per_resolution_of_each_root() {
+            config.component(TestComponent.class, ComponentWithProvider.class);
+            config.component(Dependency.class, DependencyOnAnother.class);
+            config.component(AnotherDependency.class, AnotherDependencyWithInjectConstructor.class);
+
+            assertEquals(
+                    Map.of(component, 1L, dependency, 2L), config.diagnostics().objectsPerResolution());
+        }
+    }
+
+    @Nested
+    class Snapshots {
+        @TempDir
+        Path directory;
+
+        @Singleton
+        static class SingletonDependency implements Dependency {}
+
+        @Test
+        public void should_restore_components_from_snapshot() throws IOException {
+            Path file = directory.resolve("context.snapshot");
+            config.component(Dependency.class, SingletonDependency.class);
+            config.component(
+                    Dependency.class, SingletonDependency.class, new NameLiteral("chosenOne"), new SkywalkerLiteral());
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class, new NameLiteral("chosenOne"));
+            config.snapshot(file);
+
+            ContextConfig restored = new ContextConfig();
+            assertTrue(restored.restore(file));
+            Context context = restored.getContext();
+
+            Dependency dependency =
+                    context.get(ComponentRef.of(Dependency.class)).get();
+            assertSame(
+                    dependency,
+                    context.get(ComponentRef.of(TestComponent.class, new NameLiteral("chosenOne")))
+                            .get()
+                            .dependency());
+            Dependency chosenOne = context.get(ComponentRef.of(Dependency.class, new NameLiteral("chosenOne")))
+                    .get();
+            assertNotSame(dependency, chosenOne);
+            assertSame(
+                    chosenOne,
+                    context.get(ComponentRef.of(Dependency.class, new SkywalkerLiteral()))
+                            .get());
+        }
+
+        @Test
+        public void should_require_instance_bindings_to_be_bound_again() throws IOException {
+            Path file = directory.resolve("context.snapshot");
+            Dependency dependency = new Dependency() {};
+            config.instance(Dependency.class, dependency);
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.snapshot(file);
+
+            ContextConfig restored = new ContextConfig();
+            assertTrue(restored.restore(file));
+            assertThrows(ContextConfigError.class, restored::getContext);
+
+            restored.instance(Dependency.class, dependency);
+            assertSame(
+                    dependency,
+                    restored.getContext()
+                            .get(ComponentRef.of(TestComponent.class))
+                            .get()
+                            .dependency());
+        }
+
+        @Test
+        public void should_validate_bindings_added_after_restore() throws IOException {
+            Path file = directory.resolve("context.snapshot");
+            config.component(Dependency.class, SingletonDependency.class);
+            config.snapshot(file);
+
+            ContextConfig restored = new ContextConfig();
+            assertTrue(restored.restore(file));
+            restored.component(DependencyCheck.Left.class, DependencyCheck.LeftInjectRight.class);
+
+            assertThrows(ContextConfigError.class, restored::getContext);
+        }
+
+        @Test
+        public void should_validate_instance_key_bound_again_as_component() throws IOException {
+            Path file = directory.resolve("context.snapshot");
+            config.instance(Dependency.class, new Dependency() {});
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.snapshot(file);
+
+            ContextConfig missing = new ContextConfig();
+            assertTrue(missing.restore(file));
+            missing.component(Dependency.class, ScopeWidening.DependencyOnAnother.class);
+            assertThrows(ContextConfigError.class, missing::getContext);
+
+            ContextConfig cyclic = new ContextConfig();
+            assertTrue(cyclic.restore(file));
+            cyclic.component(Dependency.class, DependencyCheck.CyclicDependencyInjectConstructor.class);
+            assertThrows(ContextConfigError.class, cyclic::getContext);
+        }
+
+        @Test
+        public void should_not_snapshot_unsatisfied_components() {
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            assertThrows(ContextConfigError.class, () -> config.snapshot(directory.resolve("context.snapshot")));
+        }
+
+        @Test
+        public void should_not_restore_from_missing_snapshot() throws IOException {
+            assertFalse(config.restore(directory.resolve("missing.snapshot")));
+        }
+
+        @Test
+        public void should_not_restore_from_corrupted_snapshot() throws IOException {
+            Path file = directory.resolve("context.snapshot");
+            Files.write(file, new byte[] {0x47, 0x54, 0x44, 0x49, 0, 0, 0, 1, 42});
+
+            assertFalse(config.restore(file));
+        }
+
+        @Test
+        public void should_not_fail_on_damaged_snapshot() throws IOException {
+            Path file = directory.resolve("context.snapshot");
+            config.component(Dependency.class, SingletonDependency.class, new NameLiteral("chosenOne"));
+            config.component(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.component(Dependency.class, SingletonDependency.class);
+            config.snapshot(file);
+            byte[] snapshot = Files.readAllBytes(file);
+
+            for (int i = 0; i < snapshot.length; i++) {
+                for (byte damage : new byte[] {(byte) 0xff, 0x7f, 0x00}) {
+                    byte[] damaged = snapshot.clone();
+                    damaged[i] = damage;
+                    Files.write(file, damaged);
+                    assertDoesNotThrow(() -> new ContextConfig().restore(file), "byte " + i);
+                }
+            }
+        }
+    }
+
+    @Nested
+    class Keys {
+        @jakarta.inject.Named("chosenOne")
+        Dependency annotated;
+
+        @Test
+        public void should_intern_component_refs() {
+            assertSame(
+                    ComponentRef.of(TestComponent.class, new NameLiteral("chosenOne")),
+                    ComponentRef.of(TestComponent.class, new NameLiteral("chosenOne")));
+            assertSame(ComponentRef.of(TestComponent.class), ComponentRef.of(TestComponent.class));
+            assertNotSame(
+                    ComponentRef.of(TestComponent.class),
+                    ComponentRef.of(TestComponent.class, new NameLiteral("chosenOne")));
+        }
+
+        @Test
+        public void should_normalize_qualifier_literal_and_annotation_to_same_component() throws Exception {
+            jakarta.inject.Named named =
+                    Keys.class.getDeclaredField("annotated").getAnnotation(jakarta.inject.Named.class);
+
+            assertSame(
+                    Component.of(Dependency.class, new NameLiteral("chosenOne")),
+                    Component.of(Dependency.class, named));
+            assertEquals(
+                    new Component(Dependency.class, new NameLiteral("chosenOne")),
+                    new Component(Dependency.class, named));
+        }
+
+        @Test
+        public void should_distinguish_qualifier_values() {
+            assertNotEquals(
+                    Component.of(Dependency.class, new NameLiteral("chosenOne")),
+                    Component.of(Dependency.class, new NameLiteral("skywalker")));
+            assertNotEquals(
+                    Component.of(Dependency.class, new NameLiteral("chosenOne")),
+                    Component.of(Dependency.class, new SkywalkerLiteral()));
+        }
+
+        @Test
+        public void should_intern_container_refs() {
+            Type type = new ComponentRef<Provider<Dependency>>() {}.getClass().getGenericSuperclass();
+            Type provider = ((ParameterizedType) type).getActualTypeArguments()[0];
+
+            assertSame(
+                    ComponentRef.of(provider, new NameLiteral("chosenOne")),
+                    ComponentRef.of(provider, new NameLiteral("chosenOne")));
+            assertSame(ComponentRef.of(Dependency.class), ComponentRef.of((Type) Dependency.class));
+        }
+
+        @Test
+        public void should_not_allocate_when_looking_up_interned_ref() {
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            NameLiteral qualifier = new NameLiteral("chosenOne");
+            for (int i = 0; i < 20_000; i++) {
+                ComponentRef.of(TestComponent.class, qualifier);
+            }
+
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                ComponentRef.of(TestComponent.class, qualifier);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+            assertTrue(allocated < 10_000, allocated + " bytes allocated");
+        }
+
+        @Test
+        public void should_not_keep_looked_up_type_on_thread() throws Exception {
+            Component.of(Dependency.class, new NameLiteral("chosenOne"));
+
+            java.lang.reflect.Field probes = Component.class.getDeclaredField("probes");
+            probes.setAccessible(true);
+            Object probe = ((ThreadLocal<?>) probes.get(null)).get();
+            for (java.lang.reflect.Field field : probe.getClass().getDeclaredFields()) {
+                field.setAccessible(true);
+                if (!field.getType().isPrimitive()) {
+                    assertNull(field.get(probe), field.getName());
+                }
+            }
+        }
+
+        @Test
+        public void should_equal_to_anonymous_component_ref_of_same_type() {
+            assertEquals(
+                    new ComponentRef<Provider<Dependency>>() {}.component(),
+                    ComponentRef.of(Dependency.class).component());
+        }
     }
 }
@@ -13,11 +13,17 @@ import static org.mockito.Mockito.when;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Provider;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.Mockito;
 
 public class InjectionTest {
@@ -27,7 +33,11 @@ public class InjectionTest {
     private Provider<Dependency> dependencyProvider = mock(Provider.class);
     private ParameterizedType dependencyProviderType;
 
-    private Context context = mock(Context.class);
+    private Context context = mock(
+            Context.class,
+            invocation -> invocation.getMethod().isDefault()
+                    ? invocation.callRealMethod()
+                    : Mockito.RETURNS_DEFAULTS.answer(invocation));
 
     @BeforeEach
     void setUp() throws NoSuchFieldException {
@@ -506,4 +516,131 @@ public class InjectionTest {
             }
         }
     }
+
+    @Nested
+    public class WithEngine {
+        static class SuperClassWithPrivateMembers {
+            @Inject
+            private Dependency superDependency;
+
+            Dependency installed;
+
+            @Inject
+            private void install(Dependency dependency) {
+                this.installed = superDependency == dependency ? dependency : null;
+            }
+        }
+
+        static class PrivateMembers extends SuperClassWithPrivateMembers {
+            private final Dependency dependency;
+
+            @Inject
+            private Dependency field;
+
+            int called;
+
+            @Inject
+            private PrivateMembers(Dependency dependency) {
+                this.dependency = dependency;
+            }
+
+            @Inject
+            private int install(Dependency dependency, Provider<Dependency> provider) {
+                return ++called;
+            }
+        }
+
+        @ParameterizedTest
+        @EnumSource(InjectionEngine.class)
+        public void should_inject_private_members_via_engine(InjectionEngine engine) {
+            PrivateMembers instance = new InjectionProvider<>(PrivateMembers.class, engine).get(context);
+
+            assertSame(dependency, instance.dependency);
+            assertSame(dependency, instance.field);
+            assertSame(dependency, instance.installed);
+            assertEquals(1, instance.called);
+        }
+
+        @Test
+        public void should_generate_hidden_class_invokers_for_injection_points() throws NoSuchMethodException {
+            Invoker invoker =
+                    InjectionEngine.HIDDEN_CLASS.invoker(PrivateMembers.class.getDeclaredConstructor(Dependency.class));
+
+            assertTrue(invoker.getClass().isHidden());
+            assertSame(PrivateMembers.class.getNestHost(), invoker.getClass().getNestHost());
+        }
+
+        @Test
+        public void should_generate_one_hidden_class_invoker_per_component() throws Exception {
+            Constructor<PrivateMembers> constructor = PrivateMembers.class.getDeclaredConstructor(Dependency.class);
+            List<AccessibleObject> members = List.of(
+                    SuperClassWithPrivateMembers.class.getDeclaredField("superDependency"),
+                    SuperClassWithPrivateMembers.class.getDeclaredMethod("install", Dependency.class),
+                    PrivateMembers.class.getDeclaredField("field"),
+                    PrivateMembers.class.getDeclaredMethod("install", Dependency.class, Provider.class));
+
+            Invoker invoker = InjectionEngine.HIDDEN_CLASS.component(constructor, members);
+
+            assertTrue(invoker.getClass().isHidden());
+            assertSame(PrivateMembers.class.getNestHost(), invoker.getClass().getNestHost());
+            assertSame(invoker, InjectionEngine.HIDDEN_CLASS.component(constructor, List.copyOf(members)));
+            Dependency dependency = new Dependency() {};
+            PrivateMembers instance = (PrivateMembers) invoker.invoke(
+                    null, new Object[] {dependency, dependency, dependency, dependency, dependency, null});
+            assertSame(dependency, instance.installed);
+            assertEquals(1, instance.called);
+        }
+
+        static class ThrowingConstructor {
+            @Inject
+            ThrowingConstructor(Dependency dependency) {
+                throw new IllegalStateException();
+            }
+        }
+
+        @ParameterizedTest
+        @EnumSource(InjectionEngine.class)
+        public void should_wrap_exception_thrown_by_component_the_same_way(InjectionEngine engine) {
+            RuntimeException exception = assertThrows(
+                    RuntimeException.class,
+                    () -> new InjectionProvider<>(ThrowingConstructor.class, engine).get(context));
+
+            assertTrue(exception.getCause() instanceof InvocationTargetException);
+            assertTrue(exception.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Nested
+    public class Metadata {
+        abstract static class Handler {
+            @Inject
+            Dependency dependency;
+
+            @Inject
+            void install(Dependency dependency) {}
+        }
+
+        static class FirstHandler extends Handler {}
+
+        static class SecondHandler extends Handler {
+            @Override
+            void install(Dependency dependency) {}
+        }
+
+        @Test
+        public void should_scan_shared_super_class_only_once() {
+            InjectionProvider<FirstHandler> first = new InjectionProvider<>(FirstHandler.class);
+            InjectionProvider<SecondHandler> second = new InjectionProvider<>(SecondHandler.class);
+
+            assertSame(first.fields().get(0), second.fields().get(0));
+            assertSame(InjectionProvider.Metadata.of(Handler.class), InjectionProvider.Metadata.of(Handler.class));
+        }
+
+        @Test
+        public void should_resolve_overrides_per_component_with_shared_metadata() {
+            assertEquals(
+                    1, new InjectionProvider<>(FirstHandler.class).methods().size());
+            assertTrue(new InjectionProvider<>(SecondHandler.class).methods().isEmpty());
+        }
+    }
 }
@@ -2,6 +2,7 @@ package geektime.tdd.di;
 
 import jakarta.inject.Named;
 import junit.framework.Test;
+import junit.framework.TestSuite;
 import org.atinject.tck.Tck;
 import org.atinject.tck.auto.*;
 import org.atinject.tck.auto.accessories.Cupholder;
@@ -9,8 +10,25 @@ import org.atinject.tck.auto.accessories.SpareTire;
 
 public class JakartaTCK {
 
+    // static members are global state, they can only be injected (and verified) once per JVM
+    private static final InjectionEngine STATICS = InjectionEngine.METHOD_HANDLE;
+
     public static Test suite() {
+        TestSuite suite = new TestSuite(JakartaTCK.class.getName());
+        for (InjectionEngine engine : InjectionEngine.values()) {
+            TestSuite engineSuite = new TestSuite(engine.name());
+            engineSuite.addTest(testsFor(engine, engine == STATICS, false));
+            suite.addTest(engineSuite);
+        }
+        TestSuite compiledSuite = new TestSuite("COMPILED");
+        compiledSuite.addTest(testsFor(STATICS, false, true));
+        suite.addTest(compiledSuite);
+        return suite;
+    }
+
+    private static Test testsFor(InjectionEngine engine, boolean statics, boolean compiled) {
         ContextConfig config = new ContextConfig();
+        config.engine(engine);
         config.from(new Config() {
             @Export(Car.class)
             Convertible car;
@@ -32,16 +50,25 @@ public class JakartaTCK {
 
             FuelTank fuelTank;
 
-            @Static
-            SpareTire spareTire;
-
             Cupholder cupholder;
-
-            @Static
-            Convertible convertible;
         });
+        config.from(
+                statics
+                        ? new Config() {
+                            @Static
+                            SpareTire spareTire;
+
+                            @Static
+                            Convertible convertible;
+                        }
+                        : new Config() {
+                            SpareTire spareTire;
+
+                            Convertible convertible;
+                        });
 
-        Car car = config.getContext().get(ComponentRef.of(Car.class)).get();
-        return Tck.testsFor(car, true, true);
+        Context context = compiled ? config.compile() : config.getContext();
+        Car car = context.get(ComponentRef.of(Car.class)).get();
+        return Tck.testsFor(car, statics, true);
     }
 }
@@ -1,7 +1,7 @@
 package geektime.tdd.di;
 
+import jakarta.inject.Inject;
 import jakarta.inject.Qualifier;
-import jakarta.inject.Scope;
 import jakarta.inject.Singleton;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Documented;
@@ -20,6 +20,11 @@ interface TestComponent {
 
 interface Dependency {}
 
+class DependencyWithInjectConstructor implements Dependency {
+    @Inject
+    DependencyWithInjectConstructor() {}
+}
+
 interface AnotherDependency {}
 
 record NameLiteral(String value) implements jakarta.inject.Named {
@@ -75,10 +80,21 @@ record SingletonLiteral() implements Singleton {
     }
 }
 
-@Scope
-@Documented
-@Retention(RetentionPolicy.RUNTIME)
-@interface Pooled {}
+record RequestScopedLiteral() implements RequestScoped {
+
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return RequestScoped.class;
+    }
+}
+
+record ThreadScopedLiteral() implements ThreadScoped {
+
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return ThreadScoped.class;
+    }
+}
 
 record PooledLiteral() implements Pooled {
 
@@ -0,0 +1,439 @@
+package geektime.tdd.di.processor;
+
+import static geektime.tdd.di.processor.InjectionProcessor.INJECT;
+import static geektime.tdd.di.processor.InjectionProcessor.QUALIFIER;
+import static geektime.tdd.di.processor.InjectionProcessor.asTypeElement;
+import static geektime.tdd.di.processor.InjectionProcessor.isAnnotated;
+import static geektime.tdd.di.processor.InjectionProcessor.isMetaAnnotated;
+import static java.util.stream.Collectors.joining;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the {@code ComponentProvider} of one component, following the rules of {@code InjectionProvider}:
+ * one inject constructor (or the default one), inject fields and methods in superclass-first order, methods
+ * overridden in a subclass are skipped. Members the generated class can not reach are called through
+ * method handles looked up once, qualifiers are read from the exact element that declares them.
+ */
+class ComponentFactory {
+    private final ProcessingEnvironment env;
+    private final Elements elements;
+    private final Types types;
+    private final TypeElement component;
+    private final String packageName;
+    private final String name;
+
+    private final List<String> fields = new ArrayList<>();
+    private final List<String> initializers = new ArrayList<>();
+    private final List<String> dependencies = new ArrayList<>();
+    private int handleCount;
+    private int qualifierCount;
+    private final StringBuilder get = new StringBuilder();
+    private final StringBuilder statics = new StringBuilder();
+
+    ComponentFactory(ProcessingEnvironment env, TypeElement component) {
+        this.env = env;
+        this.elements = env.getElementUtils();
+        this.types = env.getTypeUtils();
+        this.component = component;
+        this.packageName = elements.getPackageOf(component).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(component).toString();
+        this.name = binaryName
+                        .substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                        .replace('$', '_')
+                + "_Factory";
+    }
+
+    Optional<String> write() {
+        try {
+            generate();
+        } catch (Unsupported e) {
+            env.getMessager()
+                    .printMessage(
+                            Diagnostic.Kind.WARNING,
+                            "Not indexed, falls back to runtime scanning: " + e.getMessage(),
+                            component);
+            return Optional.empty();
+        }
+        String qualifiedName = packageName.isEmpty() ? name : packageName + "." + name;
+        try (Writer writer =
+                env.getFiler().createSourceFile(qualifiedName, component).openWriter()) {
+            writer.write(source());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Optional.of(qualifiedName);
+    }
+
+    private void generate() {
+        if (!isNameable(component)
+                || component.getNestingKind() == NestingKind.MEMBER
+                        && !component.getModifiers().contains(Modifier.STATIC)) {
+            throw new Unsupported("component is not accessible from " + name);
+        }
+        List<TypeElement> superClasses = superClasses();
+        inject(get, injectConstructor());
+        for (TypeElement superClass : superClasses) {
+            for (VariableElement field : ElementFilter.fieldsIn(superClass.getEnclosedElements())) {
+                if (isAnnotated(field, INJECT)) {
+                    if (field.getModifiers().contains(Modifier.FINAL)) {
+                        throw new Unsupported("injectable field can not be final: " + field);
+                    }
+                    inject(isStatic(field) ? statics : get, field);
+                }
+            }
+            for (ExecutableElement method : ElementFilter.methodsIn(superClass.getEnclosedElements())) {
+                if (isAnnotated(method, INJECT) && !isOverridden(method, superClasses)) {
+                    if (!method.getTypeParameters().isEmpty()) {
+                        throw new Unsupported("injectable method can not have type parameter: " + method);
+                    }
+                    inject(isStatic(method) ? statics : get, method);
+                }
+            }
+        }
+    }
+
+    private List<TypeElement> superClasses() {
+        List<TypeElement> result = new ArrayList<>();
+        for (Optional<TypeElement> current = Optional.of(component);
+                current.isPresent();
+                current = asTypeElement(current.get().getSuperclass())) {
+            result.add(current.get());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private ExecutableElement injectConstructor() {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(component.getEnclosedElements());
+        List<ExecutableElement> injectConstructors =
+                constructors.stream().filter(c -> isAnnotated(c, INJECT)).toList();
+        if (injectConstructors.size() > 1) {
+            throw new Unsupported("ambiguous injectable constructors");
+        }
+        return injectConstructors.stream()
+                .findFirst()
+                .or(() -> constructors.stream()
+                        .filter(c -> c.getParameters().isEmpty())
+                        .findFirst())
+                .orElseThrow(() -> new Unsupported("no default constructors"));
+    }
+
+    // same rule as InjectionProvider.getInjectMethods: skipped when overridden by an inject method that is kept
+    // itself, or by a plain method of the component; a plain override in between does not count
+    private boolean isOverridden(ExecutableElement method, List<TypeElement> superClasses) {
+        for (TypeElement type : superClasses.subList(
+                superClasses.indexOf((TypeElement) method.getEnclosingElement()) + 1, superClasses.size())) {
+            for (ExecutableElement other : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                boolean inject = isAnnotated(other, INJECT);
+                if ((inject ? !isOverridden(other, superClasses) : type.equals(component))
+                        && isOverride(other, method)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isOverride(ExecutableElement method, ExecutableElement other) {
+        boolean visible;
+        if (elements.getPackageOf(method).equals(elements.getPackageOf(other))) {
+            visible = !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !other.getModifiers().contains(Modifier.PRIVATE);
+        } else {
+            visible = isInherited(method) && isInherited(other);
+        }
+        return visible
+                && method.getSimpleName().contentEquals(other.getSimpleName())
+                && method.getParameters().size() == other.getParameters().size()
+                && IntStream.range(0, method.getParameters().size())
+                        .allMatch(i -> types.isSameType(
+                                types.erasure(method.getParameters().get(i).asType()),
+                                types.erasure(other.getParameters().get(i).asType())));
+    }
+
+    private static boolean isInherited(ExecutableElement method) {
+        return method.getModifiers().contains(Modifier.PUBLIC)
+                || method.getModifiers().contains(Modifier.PROTECTED);
+    }
+
+    private void inject(StringBuilder body, Element member) {
+        TypeElement owner = (TypeElement) member.getEnclosingElement();
+        if (!isNameable(owner)) {
+            throw new Unsupported(owner + " is not accessible from " + name);
+        }
+        List<String> arguments = new ArrayList<>();
+        body.append("        {\n");
+        List<? extends Element> required =
+                member instanceof ExecutableElement executable ? executable.getParameters() : List.of(member);
+        for (int i = 0; i < required.size(); i++) {
+            TypeMirror type = required.get(i).asType();
+            String ref = dependency(member, i, required.get(i));
+            body.append("            ")
+                    .append(typeName(type))
+                    .append(" argument")
+                    .append(i)
+                    .append(" = (")
+                    .append(typeName(type))
+                    .append(") context.require(")
+                    .append(ref)
+                    .append(");\n");
+            arguments.add("argument" + i);
+        }
+        body.append("            try {\n");
+        body.append("                ")
+                .append(invocation(member, owner, arguments))
+                .append(";\n");
+        body.append("            } catch (Throwable e) {\n");
+        body.append("                throw failure(e);\n");
+        body.append("            }\n");
+        body.append("        }\n");
+    }
+
+    private String invocation(Element member, TypeElement owner, List<String> arguments) {
+        String target = isStatic(member) ? erasure(owner.asType()) : "((" + erasure(owner.asType()) + ") instance)";
+        if (isDirect(member, owner)) {
+            return switch (member.getKind()) {
+                case CONSTRUCTOR -> "instance = new " + erasure(owner.asType()) + "(" + String.join(", ", arguments)
+                        + ")";
+                case FIELD -> target + "." + member.getSimpleName() + " = " + arguments.get(0);
+                default -> target + "." + member.getSimpleName() + "(" + String.join(", ", arguments) + ")";
+            };
+        }
+        String handle = handle(member, owner);
+        List<String> handleArguments = new ArrayList<>();
+        if (member.getKind() != ElementKind.CONSTRUCTOR && !isStatic(member)) {
+            handleArguments.add("instance");
+        }
+        handleArguments.addAll(arguments);
+        String invoke = handle + ".invoke(" + String.join(", ", handleArguments) + ")";
+        return member.getKind() == ElementKind.CONSTRUCTOR
+                ? "instance = (" + erasure(owner.asType()) + ") " + invoke
+                : invoke;
+    }
+
+    private boolean isDirect(Element member, TypeElement owner) {
+        Stream<TypeMirror> signature = member instanceof ExecutableElement executable
+                ? executable.getParameters().stream().map(Element::asType)
+                : Stream.of(member.asType());
+        if (signature.anyMatch(t -> !isNameable(types.erasure(t)))) {
+            throw new Unsupported(member + " has types not accessible from " + name);
+        }
+        if (member.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return member.getModifiers().contains(Modifier.PUBLIC)
+                || elements.getPackageOf(owner).getQualifiedName().contentEquals(packageName);
+    }
+
+    private String handle(Element member, TypeElement owner) {
+        String handle = "MEMBER_" + handleCount++;
+        fields.add("java.lang.invoke.MethodHandle " + handle);
+        String lookup = "java.lang.invoke.MethodHandles.privateLookupIn(" + erasure(owner.asType())
+                + ".class, java.lang.invoke.MethodHandles.lookup())";
+        String find =
+                switch (member.getKind()) {
+                    case CONSTRUCTOR -> "findConstructor(" + erasure(owner.asType()) + ".class, "
+                            + methodType((ExecutableElement) member) + ")";
+                    case FIELD -> (isStatic(member) ? "findStaticSetter(" : "findSetter(") + erasure(owner.asType())
+                            + ".class, \"" + member.getSimpleName() + "\", " + erasure(member.asType()) + ".class)";
+                    default -> (isStatic(member) ? "findStatic(" : "findVirtual(") + erasure(owner.asType())
+                            + ".class, \"" + member.getSimpleName() + "\", "
+                            + methodType((ExecutableElement) member) + ")";
+                };
+        initializers.add(handle + " = " + lookup + "." + find);
+        return handle;
+    }
+
+    private String dependency(Element member, int index, Element required) {
+        TypeMirror type = required.asType();
+        if (!isNameable(type)) {
+            throw new Unsupported(required + " of " + member + " is not accessible from " + name);
+        }
+        List<? extends AnnotationMirror> qualifiers = required.getAnnotationMirrors().stream()
+                .filter(a -> isMetaAnnotated(a.getAnnotationType(), QUALIFIER))
+                .toList();
+        if (qualifiers.size() > 1) {
+            throw new Unsupported("ambiguous qualifiers on " + required + " of " + member);
+        }
+        Optional<String> qualifier = qualifiers.stream().findFirst().map(q -> qualifier(member, index, q));
+        String ref = "REF_" + dependencies.size();
+        fields.add("geektime.tdd.di.ComponentRef<?> " + ref);
+        boolean container = type.getKind() == TypeKind.DECLARED
+                && !((DeclaredType) type).getTypeArguments().isEmpty();
+        initializers.add(ref + " = "
+                + (container
+                        ? "new geektime.tdd.di.ComponentRef<" + typeName(type) + ">(" + qualifier.orElse("") + ") {}"
+                        : "geektime.tdd.di.ComponentRef.of(" + erasure(type) + ".class"
+                                + qualifier.map(q -> ", " + q).orElse("") + ")"));
+        dependencies.add(ref);
+        return ref;
+    }
+
+    private String qualifier(Element member, int index, AnnotationMirror qualifier) {
+        if (!isNameable(qualifier.getAnnotationType())) {
+            throw new Unsupported(qualifier + " is not accessible from " + name);
+        }
+        String owner = erasure(member.getEnclosingElement().asType()) + ".class";
+        String element =
+                switch (member.getKind()) {
+                    case CONSTRUCTOR -> owner + ".getDeclaredConstructor(" + parameterTypes((ExecutableElement) member)
+                            + ").getParameters()[" + index + "]";
+                    case FIELD -> owner + ".getDeclaredField(\"" + member.getSimpleName() + "\")";
+                    default -> owner + ".getDeclaredMethod(\"" + member.getSimpleName() + "\""
+                            + (((ExecutableElement) member).getParameters().isEmpty() ? "" : ", ")
+                            + parameterTypes((ExecutableElement) member) + ").getParameters()[" + index + "]";
+                };
+        String field = "QUALIFIER_" + qualifierCount++;
+        fields.add("java.lang.annotation.Annotation " + field);
+        initializers.add(
+                field + " = " + element + ".getAnnotation(" + erasure(qualifier.getAnnotationType()) + ".class)");
+        return field;
+    }
+
+    private String methodType(ExecutableElement executable) {
+        String returnType =
+                executable.getKind() == ElementKind.CONSTRUCTOR ? "void" : erasure(executable.getReturnType());
+        return "java.lang.invoke.MethodType.methodType(" + returnType + ".class"
+                + (executable.getParameters().isEmpty() ? "" : ", ") + parameterTypes(executable) + ")";
+    }
+
+    private String parameterTypes(ExecutableElement executable) {
+        return executable.getParameters().stream()
+                .map(p -> erasure(p.asType()) + ".class")
+                .collect(joining(", "));
+    }
+
+    private String source() {
+        String componentName = erasure(component.asType());
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"")
+                .append(InjectionProcessor.class.getName())
+                .append("\")\n");
+        source.append("public final class ")
+                .append(name)
+                .append(" implements geektime.tdd.di.ComponentProvider<")
+                .append(componentName)
+                .append("> {\n");
+        for (String field : fields) {
+            source.append("    private static final ").append(field).append(";\n");
+        }
+        source.append("    private static final java.util.List<geektime.tdd.di.ComponentRef<?>> DEPENDENCIES;\n\n");
+        source.append("    static {\n");
+        source.append("        try {\n");
+        for (String initializer : initializers) {
+            source.append("            ").append(initializer).append(";\n");
+        }
+        source.append("        } catch (Exception e) {\n");
+        source.append("            throw new ExceptionInInitializerError(e);\n");
+        source.append("        }\n");
+        source.append("        DEPENDENCIES = java.util.List.of(")
+                .append(String.join(", ", dependencies))
+                .append(");\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    @SuppressWarnings(\"unchecked\")\n");
+        source.append("    public ").append(componentName).append(" get(geektime.tdd.di.Context context) {\n");
+        source.append("        ").append(componentName).append(" instance;\n");
+        source.append(get);
+        source.append("        return instance;\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    @SuppressWarnings(\"unchecked\")\n");
+        source.append("    public void statics(geektime.tdd.di.Context context) {\n");
+        source.append(statics);
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    public java.util.List<geektime.tdd.di.ComponentRef<?>> getDependencies() {\n");
+        source.append("        return DEPENDENCIES;\n");
+        source.append("    }\n\n");
+        source.append("    private static RuntimeException failure(Throwable e) {\n");
+        source.append("        return new RuntimeException(new java.lang.reflect.InvocationTargetException(e));\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private boolean isNameable(TypeMirror type) {
+        return switch (type.getKind()) {
+            case BOOLEAN, BYTE, SHORT, INT, LONG, CHAR, FLOAT, DOUBLE -> true;
+            case ARRAY -> isNameable(((ArrayType) type).getComponentType());
+            case DECLARED -> isNameable((TypeElement) ((DeclaredType) type).asElement())
+                    && ((DeclaredType) type).getTypeArguments().stream().allMatch(this::isNameable);
+            default -> false;
+        };
+    }
+
+    private boolean isNameable(TypeElement type) {
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!current.getModifiers().contains(Modifier.PUBLIC)
+                    && !elements.getPackageOf(current).getQualifiedName().contentEquals(packageName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String typeName(TypeMirror type) {
+        return switch (type.getKind()) {
+            case ARRAY -> typeName(((ArrayType) type).getComponentType()) + "[]";
+            case DECLARED -> {
+                DeclaredType declared = (DeclaredType) type;
+                String raw =
+                        ((TypeElement) declared.asElement()).getQualifiedName().toString();
+                yield declared.getTypeArguments().isEmpty()
+                        ? raw
+                        : raw
+                                + declared.getTypeArguments().stream()
+                                        .map(this::typeName)
+                                        .collect(joining(", ", "<", ">"));
+            }
+            default -> type.toString();
+        };
+    }
+
+    private String erasure(TypeMirror type) {
+        return typeName(types.erasure(type));
+    }
+
+    private static boolean isStatic(Element member) {
+        return member.getModifiers().contains(Modifier.STATIC);
+    }
+
+    private static class Unsupported extends RuntimeException {
+        Unsupported(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package geektime.tdd.di.processor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+@SupportedAnnotationTypes("*")
+@SupportedOptions(InjectionProcessor.INDEX)
+public class InjectionProcessor extends AbstractProcessor {
+    static final String INDEX = "geektime.tdd.di.index";
+    static final String INJECT = "jakarta.inject.Inject";
+    static final String QUALIFIER = "jakarta.inject.Qualifier";
+    static final String SCOPE = "jakarta.inject.Scope";
+    static final String CONFIG = "geektime.tdd.di.Config";
+
+    private static final String DEFAULT_PACKAGE = "geektime.tdd.di.generated";
+
+    private final List<String> indexes = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!indexes.isEmpty()) {
+                writeServices();
+            }
+            return false;
+        }
+        Set<TypeElement> sources = new LinkedHashSet<>();
+        for (TypeElement root : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collect(root, sources);
+        }
+        Set<TypeElement> components = new LinkedHashSet<>();
+        for (TypeElement source : sources) {
+            if (isConfig(source)) {
+                ElementFilter.fieldsIn(source.getEnclosedElements()).stream()
+                        .map(f -> asTypeElement(f.asType()))
+                        .flatMap(Optional::stream)
+                        .filter(sources::contains)
+                        .forEach(components::add);
+            }
+            if (isInjectable(source)) {
+                components.add(source);
+            }
+        }
+        Map<String, String> factories = new TreeMap<>();
+        for (TypeElement component : components) {
+            new ComponentFactory(processingEnv, component)
+                    .write()
+                    .ifPresent(factory -> factories.put(
+                            processingEnv
+                                    .getElementUtils()
+                                    .getBinaryName(component)
+                                    .toString(),
+                            factory));
+        }
+        if (!factories.isEmpty()) {
+            writeIndex(factories);
+        }
+        return false;
+    }
+
+    private void collect(TypeElement type, Set<TypeElement> sources) {
+        sources.add(type);
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nested, sources);
+        }
+    }
+
+    private boolean isConfig(TypeElement type) {
+        TypeElement config = processingEnv.getElementUtils().getTypeElement(CONFIG);
+        return config != null && processingEnv.getTypeUtils().isAssignable(type.asType(), config.asType());
+    }
+
+    private boolean isInjectable(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        if (type.getAnnotationMirrors().stream().anyMatch(a -> isMetaAnnotated(a.getAnnotationType(), SCOPE))) {
+            return true;
+        }
+        for (Optional<TypeElement> current = Optional.of(type);
+                current.isPresent();
+                current = asTypeElement(current.get().getSuperclass())) {
+            if (current.get().getEnclosedElements().stream().anyMatch(e -> isAnnotated(e, INJECT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // sources created once processing is over are not compiled warning-free, so each round writes the index of its
+    // own factories and only the service file waits for the end
+    private void writeIndex(Map<String, String> factories) {
+        String option = processingEnv.getOptions().get(INDEX);
+        String index = option == null
+                ? defaultIndex(factories.keySet())
+                : indexes.isEmpty() ? option : option + "_" + indexes.size();
+        int dot = index.lastIndexOf('.');
+        StringBuilder source = new StringBuilder();
+        if (dot > 0) {
+            source.append("package ").append(index, 0, dot).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"")
+                .append(InjectionProcessor.class.getName())
+                .append("\")\n");
+        source.append("public final class ")
+                .append(index.substring(dot + 1))
+                .append(" implements geektime.tdd.di.InjectionIndex {\n");
+        source.append("    @Override\n");
+        source.append(
+                "    public java.util.Map<String, java.util.function.Supplier<geektime.tdd.di.ComponentProvider<?>>>"
+                        + " providers() {\n");
+        source.append("        return java.util.Map.ofEntries(");
+        String separator = "\n";
+        for (Map.Entry<String, String> factory : factories.entrySet()) {
+            source.append(separator)
+                    .append("                java.util.Map.entry(\"")
+                    .append(factory.getKey())
+                    .append("\", ")
+                    .append(factory.getValue())
+                    .append("::new)");
+            separator = ",\n";
+        }
+        source.append(");\n    }\n}\n");
+        try (Writer writer = processingEnv.getFiler().createSourceFile(index).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can not write injection index: " + e);
+            throw new UncheckedIOException(e);
+        }
+        indexes.add(index);
+    }
+
+    private void writeServices() {
+        try (Writer writer = processingEnv
+                .getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/geektime.tdd.di.InjectionIndex")
+                .openWriter()) {
+            for (String index : indexes) {
+                writer.write(index + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can not write injection index: " + e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ServiceLoader sees every module's index only if their names differ, so the default lives in the package the
+    // components share and is suffixed with a hash of them in case two modules share that package too
+    static String defaultIndex(Collection<String> components) {
+        String common = null;
+        for (String component : components) {
+            String name = component.substring(0, Math.max(component.lastIndexOf('.'), 0));
+            while (common != null && !common.isEmpty() && !(name.equals(common) || name.startsWith(common + "."))) {
+                common = common.substring(0, Math.max(common.lastIndexOf('.'), 0));
+            }
+            common = common == null ? name : common;
+        }
+        String pack = common == null || common.isEmpty() ? DEFAULT_PACKAGE : common;
+        return pack + ".GeneratedInjectionIndex_" + Integer.toHexString(new TreeSet<>(components).hashCode());
+    }
+
+    static Optional<TypeElement> asTypeElement(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return Optional.empty();
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        if (element.getQualifiedName().contentEquals(Object.class.getName())) {
+            return Optional.empty();
+        }
+        return Optional.of(element);
+    }
+
+    static boolean isAnnotated(Element element, String annotation) {
+        return element.getAnnotationMirrors().stream()
+                .anyMatch(a -> ((TypeElement) a.getAnnotationType().asElement())
+                        .getQualifiedName()
+                        .contentEquals(annotation));
+    }
+
+    static boolean isMetaAnnotated(DeclaredType annotationType, String annotation) {
+        return isAnnotated(annotationType.asElement(), annotation);
+    }
+}
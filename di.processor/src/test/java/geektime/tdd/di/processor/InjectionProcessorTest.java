@@ -0,0 +1,365 @@
+package geektime.tdd.di.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import geektime.tdd.di.ComponentProvider;
+import geektime.tdd.di.ComponentRef;
+import geektime.tdd.di.Context;
+import geektime.tdd.di.ContextConfig;
+import geektime.tdd.di.InjectionIndex;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class InjectionProcessorTest {
+
+    @TempDir
+    Path sources;
+
+    @TempDir
+    Path classes;
+
+    private URLClassLoader loader;
+    private ClassLoader contextClassLoader;
+
+    @BeforeEach
+    void setUp() {
+        contextClassLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Thread.currentThread().setContextClassLoader(contextClassLoader);
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    @Test
+    public void should_generate_factory_for_component_with_inject_members() throws Exception {
+        source(
+                "sample/Dependency.java",
+                """
+                package sample;
+                public interface Dependency {}
+                """);
+        source(
+                "sample/Base.java",
+                """
+                package sample;
+                import jakarta.inject.Inject;
+                public class Base {
+                    @Inject
+                    private Dependency base;
+                    public Dependency installed;
+                    @Inject
+                    private void install(Dependency dependency) {
+                        installed = base == dependency ? dependency : null;
+                    }
+                    public Dependency base() {
+                        return base;
+                    }
+                }
+                """);
+        source(
+                "sample/Component.java",
+                """
+                package sample;
+                import jakarta.inject.Inject;
+                import jakarta.inject.Named;
+                import jakarta.inject.Provider;
+                public class Component extends Base {
+                    public final Dependency constructor;
+                    @Inject
+                    @Named("chosenOne")
+                    public Dependency chosenOne;
+                    public Provider<Dependency> provider;
+                    @Inject
+                    Component(Dependency constructor) {
+                        this.constructor = constructor;
+                    }
+                    @Inject
+                    private void provider(Provider<Dependency> provider) {
+                        this.provider = provider;
+                    }
+                }
+                """);
+
+        compile();
+
+        InjectionIndex index = index();
+        assertEquals(
+                List.of("sample.Base", "sample.Component"),
+                List.copyOf(new java.util.TreeSet<>(index.providers().keySet())));
+        ComponentProvider<?> provider =
+                index.providers().get("sample.Component").get();
+        assertEquals("sample.Component_Factory", provider.getClass().getName());
+        assertEquals(5, provider.getDependencies().size());
+
+        Class<?> dependencyType = loader.loadClass("sample.Dependency");
+        Object dependency = java.lang.reflect.Proxy.newProxyInstance(
+                loader, new Class<?>[] {dependencyType}, (proxy, method, args) -> null);
+        Object chosenOne = java.lang.reflect.Proxy.newProxyInstance(
+                loader, new Class<?>[] {dependencyType}, (proxy, method, args) -> null);
+        ContextConfig config = new ContextConfig();
+        bind(config, dependencyType, dependency, null);
+        bind(config, dependencyType, chosenOne, new NameLiteral("chosenOne"));
+        Class<?> componentType = loader.loadClass("sample.Component");
+        bindComponent(config, componentType);
+
+        Context context = config.getContext();
+        Object component = provider.get(context);
+        assertSame(dependency, componentType.getField("constructor").get(component));
+        assertSame(chosenOne, componentType.getField("chosenOne").get(component));
+        assertSame(dependency, componentType.getMethod("base").invoke(component));
+        assertSame(
+                dependency,
+                componentType.getSuperclass().getDeclaredField("installed").get(component));
+        Object provided = componentType.getField("provider").get(component);
+        assertSame(dependency, ((jakarta.inject.Provider<?>) provided).get());
+        assertNotNull(context.get(ComponentRef.of(componentType)).get());
+    }
+
+    @Test
+    public void should_index_field_types_of_config() throws Exception {
+        source(
+                "sample/Plain.java",
+                """
+                package sample;
+                public class Plain {}
+                """);
+        source(
+                "sample/Module.java",
+                """
+                package sample;
+                import geektime.tdd.di.Config;
+                public class Module implements Config {
+                    Plain plain;
+                }
+                """);
+
+        compile();
+
+        assertTrue(index().providers().containsKey("sample.Plain"));
+        assertFalse(index().providers().containsKey("sample.Module"));
+    }
+
+    @Test
+    public void should_not_index_component_not_accessible_from_its_package() throws Exception {
+        source(
+                "sample/Outer.java",
+                """
+                package sample;
+                import jakarta.inject.Inject;
+                public class Outer {
+                    @Inject
+                    Inner inner;
+                    private static class Inner {
+                        @Inject
+                        Inner() {}
+                    }
+                }
+                """);
+
+        DiagnosticCollector<JavaFileObject> diagnostics = compile();
+
+        assertTrue(diagnostics.getDiagnostics().stream()
+                .anyMatch(d -> d.getMessage(null).contains("Not indexed")));
+        assertTrue(index().providers().isEmpty());
+    }
+
+    @Test
+    public void should_name_default_index_after_package_of_components() throws Exception {
+        source(
+                "sample/Plain.java",
+                """
+                package sample;
+                import jakarta.inject.Inject;
+                public class Plain {
+                    @Inject
+                    Plain() {}
+                }
+                """);
+
+        compile();
+
+        String index = Files.readString(classes.resolve("META-INF/services/geektime.tdd.di.InjectionIndex"))
+                .trim();
+        assertTrue(index.startsWith("sample.GeneratedInjectionIndex_"), index);
+    }
+
+    @Test
+    public void should_give_modules_sharing_package_different_default_indexes() {
+        String first = InjectionProcessor.defaultIndex(List.of("sample.a.First", "sample.b.Second"));
+        String second = InjectionProcessor.defaultIndex(List.of("sample.a.Third"));
+
+        assertTrue(first.startsWith("sample.GeneratedInjectionIndex_"), first);
+        assertTrue(second.startsWith("sample.a.GeneratedInjectionIndex_"), second);
+        assertFalse(first.equals(InjectionProcessor.defaultIndex(List.of("sample.a.First", "sample.b.Other"))));
+        assertTrue(InjectionProcessor.defaultIndex(List.of("First", "sample.Second"))
+                .startsWith("geektime.tdd.di.generated."));
+    }
+
+    @Test
+    public void should_not_create_sources_in_last_round() throws Exception {
+        source(
+                "sample/Plain.java",
+                """
+                package sample;
+                import jakarta.inject.Inject;
+                public class Plain {
+                    @Inject
+                    Plain() {}
+                }
+                """);
+
+        DiagnosticCollector<JavaFileObject> diagnostics = compile();
+
+        assertTrue(
+                diagnostics.getDiagnostics().stream().noneMatch(d -> d.getKind() == Diagnostic.Kind.WARNING),
+                diagnostics.getDiagnostics().toString());
+        assertTrue(index().providers().containsKey("sample.Plain"));
+    }
+
+    @Test
+    public void should_keep_inject_method_overridden_by_plain_method_of_intermediate_class() throws Exception {
+        source(
+                "sample/Dependency.java",
+                """
+                package sample;
+                public interface Dependency {}
+                """);
+        source(
+                "sample/Base.java",
+                """
+                package sample;
+                import jakarta.inject.Inject;
+                public class Base {
+                    public Dependency installed;
+                    @Inject
+                    void install(Dependency dependency) {}
+                }
+                """);
+        source(
+                "sample/Middle.java",
+                """
+                package sample;
+                public class Middle extends Base {
+                    @Override
+                    void install(Dependency dependency) {
+                        installed = dependency;
+                    }
+                }
+                """);
+        source(
+                "sample/Leaf.java",
+                """
+                package sample;
+                import jakarta.inject.Inject;
+                public class Leaf extends Middle {
+                    @Inject
+                    Leaf() {}
+                }
+                """);
+
+        compile();
+
+        ComponentProvider<?> provider = index().providers().get("sample.Leaf").get();
+        assertEquals(1, provider.getDependencies().size());
+        Class<?> dependencyType = loader.loadClass("sample.Dependency");
+        Object dependency = java.lang.reflect.Proxy.newProxyInstance(
+                loader, new Class<?>[] {dependencyType}, (proxy, method, args) -> null);
+        ContextConfig config = new ContextConfig();
+        bind(config, dependencyType, dependency, null);
+        Object leaf = provider.get(config.getContext());
+        assertSame(
+                dependency,
+                loader.loadClass("sample.Base").getField("installed").get(leaf));
+    }
+
+    private void source(String path, String content) throws IOException {
+        Path file = sources.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private DiagnosticCollector<JavaFileObject> compile() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<Path> paths;
+            try (var walk = Files.walk(sources)) {
+                paths = walk.filter(p -> p.toString().endsWith(".java")).toList();
+            }
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null,
+                    files,
+                    diagnostics,
+                    List.of("-d", classes.toString(), "-classpath", System.getProperty("java.class.path")),
+                    null,
+                    files.getJavaFileObjectsFromPaths(paths));
+            task.setProcessors(List.of(new InjectionProcessor()));
+            assertTrue(task.call(), diagnostics.getDiagnostics().toString());
+        }
+        loader = new URLClassLoader(
+                new URL[] {classes.toUri().toURL()}, getClass().getClassLoader());
+        Thread.currentThread().setContextClassLoader(loader);
+        return diagnostics;
+    }
+
+    private InjectionIndex index() {
+        Map<String, Supplier<ComponentProvider<?>>> providers = new java.util.HashMap<>();
+        ServiceLoader.load(InjectionIndex.class, loader).forEach(i -> providers.putAll(i.providers()));
+        return () -> providers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void bind(ContextConfig config, Class<T> type, Object instance, NameLiteral qualifier) {
+        if (qualifier == null) {
+            config.instance(type, (T) instance);
+        } else {
+            config.instance(type, (T) instance, qualifier);
+        }
+    }
+
+    private static <T> void bindComponent(ContextConfig config, Class<T> type) {
+        config.component(type, type);
+    }
+
+    record NameLiteral(String value) implements jakarta.inject.Named {
+        @Override
+        public Class<? extends java.lang.annotation.Annotation> annotationType() {
+            return jakarta.inject.Named.class;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof jakarta.inject.Named named && value.equals(named.value());
+        }
+
+        @Override
+        public int hashCode() {
+            return "value".hashCode() * 127 ^ value.hashCode();
+        }
+    }
+}
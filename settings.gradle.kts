@@ -8,3 +8,5 @@ pluginManagement {
 rootProject.name = "geektime-tdd"
 include("restful")
 include("di.contanier")
+include("di.processor")
+include("di.benchmarks")